@@ -0,0 +1,53 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks of Alphabet.toInt.
+ *  @author Connor Bernard
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AlphabetBenchmark {
+
+    /** Number of symbols in the alphabet. */
+    @Param({"26", "64", "256"})
+    public int alphabetSize;
+
+    /** Number of characters looked up per invocation. */
+    @Param({"1024"})
+    public int messageLength;
+
+    /** Create the alphabet and the characters to look up. */
+    @Setup
+    public void setUp() {
+        String chars = BenchmarkConfigs.alphabetString(alphabetSize);
+        _alphabet = new Alphabet(chars);
+        _message = BenchmarkConfigs.message(chars, messageLength, 2)
+            .toCharArray();
+    }
+
+    /** Return the sum of the indices of the message characters. */
+    @Benchmark
+    public int toInt() {
+        int sum = 0;
+        for (char c : _message) {
+            sum += _alphabet.toInt(c);
+        }
+        return sum;
+    }
+
+    /** Alphabet under test. */
+    private Alphabet _alphabet;
+    /** Characters to look up. */
+    private char[] _message;
+}
@@ -0,0 +1,166 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/** Deterministic generators of alphabets, rotors, machines and messages
+ *  of any size, for the benchmarks in this directory.
+ *  @author Connor Bernard
+ */
+class BenchmarkConfigs {
+
+    /** Characters used, in order, for the first symbols of generated
+     *  alphabets.  Larger alphabets continue from LATIN_EXTENDED. */
+    static final String PRINTABLE =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+        + "!\"#$%&'+,-./:;<=>?@[\\]^_`{|}~";
+
+    /** First character used beyond PRINTABLE. */
+    static final char LATIN_EXTENDED = '\u0100';
+
+    /** Not instantiable. */
+    private BenchmarkConfigs() {
+    }
+
+    /** Return the characters of an alphabet of SIZE symbols. */
+    static String alphabetString(int size) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i < PRINTABLE.length()) {
+                result.append(PRINTABLE.charAt(i));
+            } else {
+                result.append((char) (LATIN_EXTENDED + i - PRINTABLE.length()));
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return a random permutation of ALPHABET in cycle notation, drawn
+     *  from RANDOM. */
+    static String cycles(String alphabet, Random random) {
+        List<Character> chars = shuffled(alphabet, random);
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        while (i < chars.size()) {
+            int len = 1 + random.nextInt(chars.size() - i);
+            result.append('(');
+            for (int k = 0; k < len; k++) {
+                result.append(chars.get(i + k));
+            }
+            result.append(") ");
+            i += len;
+        }
+        return result.toString();
+    }
+
+    /** Return a random pairing of the characters of ALPHABET in cycle
+     *  notation, drawn from RANDOM, as for a reflector. */
+    static String pairs(String alphabet, Random random) {
+        List<Character> chars = shuffled(alphabet, random);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i + 1 < chars.size(); i += 2) {
+            result.append('(').append(chars.get(i)).append(chars.get(i + 1))
+                .append(") ");
+        }
+        return result.toString();
+    }
+
+    /** Return the characters of S in an order drawn from RANDOM. */
+    private static List<Character> shuffled(String s, Random random) {
+        List<Character> chars = new ArrayList<Character>();
+        for (char c : s.toCharArray()) {
+            chars.add(c);
+        }
+        Collections.shuffle(chars, random);
+        return chars;
+    }
+
+    /** Return the text of a configuration file for an alphabet of SIZE
+     *  symbols, NUMROTORS slots and PAWLS pawls, offering exactly the
+     *  rotors named by rotorNames(NUMROTORS, PAWLS), drawn from SEED. */
+    static String configText(int size, int numRotors, int pawls,
+                             long seed) {
+        Random random = new Random(seed);
+        String alphabet = alphabetString(size);
+        String[] names = rotorNames(numRotors, pawls);
+        StringBuilder result = new StringBuilder();
+        result.append(alphabet).append('\n');
+        result.append(numRotors).append(' ').append(pawls).append('\n');
+        result.append(names[0]).append(" R ")
+            .append(pairs(alphabet, random)).append('\n');
+        for (int i = 1; i < numRotors; i++) {
+            String kind = "N";
+            if (i >= numRotors - pawls) {
+                kind = "M" + alphabet.charAt(random.nextInt(size));
+            }
+            result.append(names[i]).append(' ').append(kind).append(' ')
+                .append(cycles(alphabet, random)).append('\n');
+        }
+        return result.toString();
+    }
+
+    /** Return the names of the rotors for NUMROTORS slots and PAWLS
+     *  pawls, reflector first. */
+    static String[] rotorNames(int numRotors, int pawls) {
+        String[] names = new String[numRotors];
+        names[0] = "Refl";
+        for (int i = 1; i < numRotors; i++) {
+            names[i] = (i >= numRotors - pawls ? "Mov" : "Fix") + i;
+        }
+        return names;
+    }
+
+    /** Return the settings line that inserts rotorNames(NUMROTORS, PAWLS)
+     *  at the first setting of an alphabet of SIZE symbols. */
+    static String settingsLine(int size, int numRotors, int pawls) {
+        StringBuilder result = new StringBuilder("*");
+        for (String name : rotorNames(numRotors, pawls)) {
+            result.append(' ').append(name);
+        }
+        result.append(' ');
+        for (int i = 1; i < numRotors; i++) {
+            result.append(alphabetString(size).charAt(0));
+        }
+        return result.toString();
+    }
+
+    /** Return a machine for an alphabet of SIZE symbols with NUMROTORS
+     *  slots and PAWLS pawls, its rotors inserted and set, drawn from
+     *  SEED. */
+    static Machine machine(int size, int numRotors, int pawls, long seed) {
+        Random random = new Random(seed);
+        String chars = alphabetString(size);
+        Alphabet alphabet = new Alphabet(chars);
+        String[] names = rotorNames(numRotors, pawls);
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        rotors.add(new Reflector(names[0],
+                new Permutation(pairs(chars, random), alphabet)));
+        for (int i = 1; i < numRotors; i++) {
+            Permutation perm = new Permutation(cycles(chars, random), alphabet);
+            if (i >= numRotors - pawls) {
+                String notch = "" + chars.charAt(random.nextInt(size));
+                rotors.add(new MovingRotor(names[i], perm, notch));
+            } else {
+                rotors.add(new FixedRotor(names[i], perm));
+            }
+        }
+        Machine result = new Machine(alphabet, numRotors, pawls, rotors);
+        result.insertRotors(names);
+        result.setRotors(chars.substring(0, 1).repeat(numRotors - 1));
+        result.setPlugboard(new Permutation("", alphabet));
+        return result;
+    }
+
+    /** Return a message of LENGTH characters of ALPHABET drawn from
+     *  SEED. */
+    static String message(String alphabet, int length, long seed) {
+        Random random = new Random(seed);
+        char[] result = new char[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(result);
+    }
+}
@@ -0,0 +1,75 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks of Machine.convert on single indices and on whole
+ *  messages.
+ *  @author Connor Bernard
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MachineBenchmark {
+
+    /** Number of symbols in the alphabet. */
+    @Param({"26", "64", "256"})
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({"5", "8"})
+    public int numRotors;
+
+    /** Number of pawls. */
+    @Param({"3"})
+    public int pawls;
+
+    /** Number of characters converted per invocation. */
+    @Param({"64", "4096"})
+    public int messageLength;
+
+    /** Create the machine under test and its message. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        _machine = BenchmarkConfigs.machine(alphabetSize, numRotors, pawls, 4);
+        String chars = BenchmarkConfigs.alphabetString(alphabetSize);
+        _message = BenchmarkConfigs.message(chars, messageLength, 5);
+        _indices = new int[messageLength];
+        Alphabet alphabet = new Alphabet(chars);
+        for (int i = 0; i < messageLength; i++) {
+            _indices[i] = alphabet.toInt(_message.charAt(i));
+        }
+    }
+
+    /** Return the sum of converting each index of the message in turn. */
+    @Benchmark
+    public int convertInt() {
+        int sum = 0;
+        for (int c : _indices) {
+            sum += _machine.convert(c);
+        }
+        return sum;
+    }
+
+    /** Return the conversion of the whole message. */
+    @Benchmark
+    public String convertString() {
+        return _machine.convert(_message);
+    }
+
+    /** Machine under test. */
+    private Machine _machine;
+    /** Message to convert. */
+    private String _message;
+    /** Indices of the characters of _message. */
+    private int[] _indices;
+}
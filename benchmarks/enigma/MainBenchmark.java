@@ -0,0 +1,98 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Benchmarks of the whole of Main: reading a configuration, setting
+ *  up the machine for each settings line and converting the messages
+ *  that follow, between files.
+ *  @author Connor Bernard
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MainBenchmark {
+
+    /** Number of symbols in the alphabet.  Kept within the printable
+     *  ASCII characters so that the files read the same in any default
+     *  charset. */
+    @Param({"26", "64"})
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({"5", "8"})
+    public int numRotors;
+
+    /** Number of pawls. */
+    @Param({"3"})
+    public int pawls;
+
+    /** Number of settings lines in the input. */
+    @Param({"1", "100"})
+    public int settingsLines;
+
+    /** Number of characters in the message after each settings line.
+     *  With 0, only the setup path is measured. */
+    @Param({"0", "4096"})
+    public int messageLength;
+
+    /** Write the configuration and input files. */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("enigma-bench");
+        _config = _dir.resolve("bench.conf");
+        _input = _dir.resolve("bench.in");
+        _output = _dir.resolve("bench.out");
+        Files.writeString(_config, BenchmarkConfigs.configText(alphabetSize,
+                numRotors, pawls, 6));
+        String chars = BenchmarkConfigs.alphabetString(alphabetSize);
+        String settings =
+            BenchmarkConfigs.settingsLine(alphabetSize, numRotors, pawls);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < settingsLines; i++) {
+            input.append(settings).append('\n');
+            if (messageLength > 0) {
+                input.append(BenchmarkConfigs.message(chars, messageLength, i))
+                    .append('\n');
+            }
+        }
+        Files.writeString(_input, input);
+    }
+
+    /** Remove the files written by setUp and run. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(_config);
+        Files.deleteIfExists(_input);
+        Files.deleteIfExists(_output);
+        Files.deleteIfExists(_dir);
+    }
+
+    /** Run Main on the configuration and input files. */
+    @Benchmark
+    public void run() {
+        Main.main(_config.toString(), _input.toString(), _output.toString());
+    }
+
+    /** Directory holding the files below. */
+    private Path _dir;
+    /** Configuration file. */
+    private Path _config;
+    /** Input file. */
+    private Path _input;
+    /** Output file. */
+    private Path _output;
+}
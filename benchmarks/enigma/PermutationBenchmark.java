@@ -0,0 +1,57 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks of Permutation.permute and Permutation.invert.
+ *  @author Connor Bernard
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PermutationBenchmark {
+
+    /** Number of symbols in the alphabet. */
+    @Param({"26", "64", "256"})
+    public int alphabetSize;
+
+    /** Create the permutation under test. */
+    @Setup
+    public void setUp() {
+        String chars = BenchmarkConfigs.alphabetString(alphabetSize);
+        _perm = new Permutation(BenchmarkConfigs.cycles(chars, new Random(1)),
+                                new Alphabet(chars));
+    }
+
+    /** Return the result of permuting every index once. */
+    @Benchmark
+    public int permute() {
+        int sum = 0;
+        for (int p = 0; p < alphabetSize; p++) {
+            sum += _perm.permute(p);
+        }
+        return sum;
+    }
+
+    /** Return the result of inverting every index once. */
+    @Benchmark
+    public int invert() {
+        int sum = 0;
+        for (int c = 0; c < alphabetSize; c++) {
+            sum += _perm.invert(c);
+        }
+        return sum;
+    }
+
+    /** Permutation under test. */
+    private Permutation _perm;
+}
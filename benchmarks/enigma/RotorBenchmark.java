@@ -0,0 +1,69 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks of Rotor.convertForward and Rotor.convertBackward at every
+ *  setting of the rotor.
+ *  @author Connor Bernard
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RotorBenchmark {
+
+    /** Number of symbols in the alphabet.  Alphabets larger than
+     *  Rotor.TABLE_LIMIT exercise the untabulated path. */
+    @Param({"26", "64", "256", "512"})
+    public int alphabetSize;
+
+    /** Create the rotor under test. */
+    @Setup
+    public void setUp() {
+        String chars = BenchmarkConfigs.alphabetString(alphabetSize);
+        Alphabet alphabet = new Alphabet(chars);
+        _rotor = new MovingRotor("Bench",
+                new Permutation(BenchmarkConfigs.cycles(chars, new Random(3)),
+                                alphabet), chars.substring(0, 1));
+    }
+
+    /** Return the sum of converting every index forward at every
+     *  setting. */
+    @Benchmark
+    public int convertForward() {
+        int sum = 0;
+        for (int s = 0; s < alphabetSize; s++) {
+            _rotor.set(s);
+            for (int p = 0; p < alphabetSize; p++) {
+                sum += _rotor.convertForward(p);
+            }
+        }
+        return sum;
+    }
+
+    /** Return the sum of converting every index backward at every
+     *  setting. */
+    @Benchmark
+    public int convertBackward() {
+        int sum = 0;
+        for (int s = 0; s < alphabetSize; s++) {
+            _rotor.set(s);
+            for (int e = 0; e < alphabetSize; e++) {
+                sum += _rotor.convertBackward(e);
+            }
+        }
+        return sum;
+    }
+
+    /** Rotor under test. */
+    private Rotor _rotor;
+}
@@ -1,28 +1,32 @@
 package enigma;
 
+import java.util.Arrays;
+
 /** An alphabet of encodable characters.  Provides a mapping from characters
- *  to and from indices into the alphabet.
+ *  to and from indices into the alphabet.  Characters are Unicode code
+ *  points, so an alphabet may hold supplementary characters, each
+ *  written as a surrogate pair in Strings, as single symbols.
  *  @author Connor Bernard
  */
 class Alphabet {
     /**
-     * the array of characters in the alphabet.
+     * the array of code points in the alphabet.
      **/
-    private char[] _alphabet;
+    private int[] _alphabet;
     /** The string of characters that represents the alphabet. */
     private String _alphabetString;
 
-    /** A new alphabet containing CHARS. The K-th character has index
-     *  K (numbering from 0). No character may be duplicated. */
+    /** A new alphabet containing the code points of CHARS. The K-th code
+     *  point has index K (numbering from 0). No code point may be
+     *  duplicated. */
     Alphabet(String chars) {
         if (chars.isEmpty() || chars.equals(" ")) {
             throw new EnigmaException("Empty Alphabet");
         }
-        _alphabet = new char[chars.length()];
-        for (int i = 0; i < chars.length(); i++) {
-            _alphabet[i] = chars.charAt(i);
-        }
+        _alphabet = chars.codePoints().toArray();
         _alphabetString = chars;
+        _bmp = _alphabet.length == chars.length();
+        buildIndex();
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -35,19 +39,91 @@ class Alphabet {
         return _alphabet.length;
     }
 
-    /** Returns true if CH is in this alphabet. */
-    boolean contains(char ch) {
-        for (char a : _alphabet) {
-            if (a == ch) {
-                return true;
+    /** Return true iff every code point of the alphabet is a single
+     *  char, so that a String over it has one char per symbol. */
+    boolean bmp() {
+        return _bmp;
+    }
+
+    /** Return the alphabet whose K-th code point is my (K + SHIFT)-th,
+     *  modulo size(), for 0 <= SHIFT < size(). */
+    Alphabet rotated(int shift) {
+        StringBuilder chars = new StringBuilder(_alphabetString.length());
+        for (int k = 0; k < size(); k++) {
+            chars.appendCodePoint(_alphabet[(k + shift) % size()]);
+        }
+        return new Alphabet(chars.toString());
+    }
+
+    /** Fill in the code-point-to-index lookup structure: a directly
+     *  indexed table when my code points span a compact range, and an
+     *  open-addressing hash table otherwise. */
+    private void buildIndex() {
+        int lo = _alphabet[0];
+        int hi = _alphabet[0];
+        for (int c : _alphabet) {
+            lo = Math.min(lo, c);
+            hi = Math.max(hi, c);
+        }
+        int span = hi - lo + 1;
+        if (span <= Math.max(DENSE_SPAN, DENSE_FACTOR * size())) {
+            _base = lo;
+            _dense = new int[span];
+            Arrays.fill(_dense, -1);
+            for (int i = _alphabet.length - 1; i >= 0; i--) {
+                _dense[_alphabet[i] - lo] = i;
+            }
+        } else {
+            int capacity = Integer.highestOneBit(2 * size() - 1) << 1;
+            _keys = new int[capacity];
+            _values = new int[capacity];
+            Arrays.fill(_values, -1);
+            for (int i = 0; i < _alphabet.length; i++) {
+                int slot = slot(_alphabet[i]);
+                if (_values[slot] == -1) {
+                    _keys[slot] = _alphabet[i];
+                    _values[slot] = i;
+                }
             }
         }
-        return false;
+    }
+
+    /** Return the slot of the hash table holding code point CH, or the
+     *  empty slot at which CH would be inserted. */
+    private int slot(int ch) {
+        int mask = _keys.length - 1;
+        int h = ch * 0x9E3779B9;
+        int k = (h ^ (h >>> 16)) & mask;
+        while (_values[k] != -1 && _keys[k] != ch) {
+            k = (k + 1) & mask;
+        }
+        return k;
+    }
+
+    /** Returns true if CH is in this alphabet. */
+    boolean contains(char ch) {
+        return toInt(ch) >= 0;
+    }
+
+    /** Returns true if code point CH is in this alphabet. */
+    boolean contains(int ch) {
+        return toInt(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
-     *  0 <= INDEX < size(). */
+     *  0 <= INDEX < size().  It must not be a supplementary
+     *  character. */
     char toChar(int index) {
+        int c = toCodePoint(index);
+        if (c > Character.MAX_VALUE) {
+            throw new EnigmaException("Alphabet character is not a char");
+        }
+        return (char) c;
+    }
+
+    /** Returns the code point numbered INDEX in the alphabet, where
+     *  0 <= INDEX < size(). */
+    int toCodePoint(int index) {
         if (index < 0 || index > _alphabet.length - 1) {
             throw new EnigmaException("Invalid alphabet index");
         }
@@ -57,16 +133,44 @@ class Alphabet {
     /** Returns the index of character CH which must be in
      *  the alphabet. This is the inverse of toChar(). */
     int toInt(char ch) {
-        for (int i = 0; i < _alphabet.length; i++) {
-            if (_alphabet[i] == ch) {
-                return i;
+        return toInt((int) ch);
+    }
+
+    /** Returns the index of code point CH, or -1 if it is not in the
+     *  alphabet.  This is the inverse of toCodePoint(). */
+    int toInt(int ch) {
+        if (_dense != null) {
+            int k = ch - _base;
+            if (k < 0 || k >= _dense.length) {
+                return -1;
             }
+            return _dense[k];
         }
-        return -1;
+        return _values[slot(ch)];
     }
     /** Returns the alphabet as a string of chars. **/
     public String getAlphabetString() {
         return _alphabetString;
     }
 
+    /** Code point ranges at most this wide are always indexed
+     *  directly. */
+    private static final int DENSE_SPAN = 256;
+    /** Wider ranges are indexed directly when no more than this many
+     *  times the size of the alphabet. */
+    private static final int DENSE_FACTOR = 4;
+
+    /** True iff every code point is a single char. */
+    private final boolean _bmp;
+    /** The smallest code point in the alphabet, at index 0 of _dense. */
+    private int _base;
+    /** Index of each code point, offset by _base, or -1; null when the
+     *  alphabet is sparse. */
+    private int[] _dense;
+    /** Hash table keys for sparse alphabets. */
+    private int[] _keys;
+    /** Index of the code point in the corresponding slot of _keys, or
+     *  -1 for an empty slot. */
+    private int[] _values;
+
 }
@@ -0,0 +1,78 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Alphabet class.
+ *  @author Connor Bernard
+ */
+public class AlphabetTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Check that ALPHA maps each character of CHARS to its index and
+     *  back again. */
+    private void checkAlphabet(Alphabet alpha, String chars) {
+        assertEquals(chars.length(), alpha.size());
+        for (int i = 0; i < chars.length(); i += 1) {
+            assertEquals(i, alpha.toInt(chars.charAt(i)));
+            assertEquals(chars.charAt(i), alpha.toChar(i));
+            assertTrue(alpha.contains(chars.charAt(i)));
+        }
+    }
+
+    @Test
+    public void checkUpper() {
+        checkAlphabet(UPPER, UPPER_STRING);
+        assertEquals(-1, UPPER.toInt('a'));
+        assertFalse(UPPER.contains('*'));
+    }
+
+    @Test
+    public void checkSparse() {
+        String chars = "A\u4e00z\uffff0\u0100";
+        Alphabet alpha = new Alphabet(chars);
+        checkAlphabet(alpha, chars);
+        assertEquals(-1, alpha.toInt('B'));
+        assertFalse(alpha.contains('\u4e01'));
+    }
+
+    @Test
+    public void checkSupplementary() {
+        String chars = "A\ud840\udc00B\ud83d\ude00";
+        Alphabet alpha = new Alphabet(chars);
+        assertEquals(4, alpha.size());
+        assertFalse(alpha.bmp());
+        assertEquals(1, alpha.toInt(0x20000));
+        assertEquals(0x1f600, alpha.toCodePoint(3));
+        assertEquals(2, alpha.toInt('B'));
+        assertEquals('A', alpha.toChar(0));
+        assertTrue(alpha.contains(0x1f600));
+        assertFalse(alpha.contains('\ud840'));
+        assertEquals("B\ud83d\ude00A\ud840\udc00",
+                     alpha.rotated(2).getAlphabetString());
+        assertTrue(UPPER.bmp());
+    }
+
+    @Test
+    public void checkLarge() {
+        int[] codePoints = new int[20000];
+        for (int i = 0; i < codePoints.length; i += 1) {
+            codePoints[i] = 0x20000 + 7 * i;
+        }
+        Alphabet alpha =
+            new Alphabet(new String(codePoints, 0, codePoints.length));
+        assertEquals(codePoints.length, alpha.size());
+        for (int i = 0; i < codePoints.length; i += 1) {
+            assertEquals(i, alpha.toInt(codePoints[i]));
+            assertEquals(codePoints[i], alpha.toCodePoint(i));
+        }
+        assertEquals(-1, alpha.toInt(0x20001));
+    }
+}
@@ -0,0 +1,259 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** A search for the settings under which a known piece of plaintext (the
+ *  crib) enciphers to part of an intercepted message, in the manner of
+ *  the Turing-Welchman Bombe.
+ *
+ *  Each crib letter and the ciphertext letter under it are joined in
+ *  the menu, a graph on the alphabet, by an edge labelled with the
+ *  keystroke at which one became the other.  Since the rotors and
+ *  reflector (the scrambler) form an involution, a guess at the
+ *  plugboard partner of one menu letter determines, through each edge,
+ *  the partner of the letter at its other end; and since the plugboard
+ *  is itself an involution, each such deduction also fixes the partner
+ *  of the partner (Welchman's diagonal board).  For every rotor order
+ *  and starting position, every partner of the most connected letter is
+ *  guessed in turn, and a guess that leads to no contradiction is a stop.
+ *  Each stop is checked by deciphering the message with a Machine.
+ *
+ *  As with the Bombe, ring settings are not searched: rotors keep their
+ *  0 ring setting, so a turnover that falls inside the crib at a
+ *  different point than the one the message was sent with can hide the
+ *  true setting.
+ *  @author Connor Bernard
+ */
+class Bombe {
+
+    /** A search of the rotors of SPEC for the settings under which CRIB
+     *  enciphers to the characters of CIPHERTEXT starting at index
+     *  OFFSET.  Blanks in CIPHERTEXT and CRIB are ignored. */
+    Bombe(MachineSpec spec, String ciphertext, String crib, int offset) {
+        _spec = spec;
+        _alphabet = spec.alphabet();
+        _size = _alphabet.size();
+        _ciphertext = ciphertext.replace(" ", "");
+        _crib = crib.replace(" ", "");
+        _offset = offset;
+        if (_crib.isEmpty()) {
+            throw error("empty crib");
+        }
+        if (offset < 0 || offset + _crib.length() > _ciphertext.length()) {
+            throw error("crib does not fit in the message at %d", offset);
+        }
+        if (!fits(_ciphertext, _crib, offset)) {
+            throw error("crib would encipher a letter to itself at %d",
+                        offset);
+        }
+        _plain = indices(_crib);
+        _cipher = indices(_ciphertext.substring(offset,
+                                                offset + _crib.length()));
+        indices(_ciphertext);
+        buildMenu();
+        _orders = spec.rotorOrders();
+    }
+
+    /** Return true iff CRIB, ignoring blanks, could be enciphered to
+     *  the characters of CIPHERTEXT, ignoring blanks, starting at index
+     *  OFFSET.  Since no letter enciphers to itself, it cannot be
+     *  where a letter of CRIB matches the letter of CIPHERTEXT under it. */
+    static boolean fits(String ciphertext, String crib, int offset) {
+        ciphertext = ciphertext.replace(" ", "");
+        crib = crib.replace(" ", "");
+        if (offset < 0 || offset + crib.length() > ciphertext.length()) {
+            return false;
+        }
+        for (int i = 0; i < crib.length(); i++) {
+            if (crib.charAt(i) == ciphertext.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the indices in my alphabet of the characters of S. */
+    private int[] indices(String s) {
+        int[] result = new int[s.length()];
+        for (int i = 0; i < s.length(); i++) {
+            result[i] = _alphabet.toInt(s.charAt(i));
+            if (result[i] < 0) {
+                throw error("character %c not in alphabet", s.charAt(i));
+            }
+        }
+        return result;
+    }
+
+    /** Fill in _links, _steps and _roots from _plain and _cipher. */
+    private void buildMenu() {
+        int[] degree = new int[_size];
+        for (int i = 0; i < _plain.length; i++) {
+            degree[_plain[i]] += 1;
+            degree[_cipher[i]] += 1;
+        }
+        _links = new int[_size][];
+        _steps = new int[_size][];
+        for (int a = 0; a < _size; a++) {
+            _links[a] = new int[degree[a]];
+            _steps[a] = new int[degree[a]];
+        }
+        int[] filled = new int[_size];
+        for (int i = 0; i < _plain.length; i++) {
+            int p = _plain[i];
+            int c = _cipher[i];
+            _links[p][filled[p]] = c;
+            _steps[p][filled[p]] = i;
+            filled[p] += 1;
+            _links[c][filled[c]] = p;
+            _steps[c][filled[c]] = i;
+            filled[c] += 1;
+        }
+        ArrayList<int[]> components = new ArrayList<int[]>();
+        boolean[] seen = new boolean[_size];
+        for (int a = 0; a < _size; a++) {
+            if (degree[a] > 0 && !seen[a]) {
+                int root = a;
+                int letters = 0;
+                ArrayList<Integer> stack = new ArrayList<Integer>();
+                stack.add(a);
+                seen[a] = true;
+                while (!stack.isEmpty()) {
+                    int b = stack.remove(stack.size() - 1);
+                    letters += 1;
+                    if (degree[b] > degree[root]) {
+                        root = b;
+                    }
+                    for (int d : _links[b]) {
+                        if (!seen[d]) {
+                            seen[d] = true;
+                            stack.add(d);
+                        }
+                    }
+                }
+                components.add(new int[] {letters, root});
+            }
+        }
+        Collections.sort(components, (x, y) -> y[0] - x[0]);
+        _roots = new int[components.size()];
+        for (int k = 0; k < _roots.length; k++) {
+            _roots[k] = components.get(k)[1];
+        }
+    }
+
+    /** Return the settings lines, in order, of every stop that deciphers
+     *  the crib, searching on all the threads of the common ForkJoinPool. */
+    List<String> search() {
+        ConcurrentLinkedQueue<String> found =
+            new ConcurrentLinkedQueue<String>();
+        ForkJoinPool.commonPool().invoke(
+            new BombeTask(this, 0, _orders.size() * _size, found));
+        ArrayList<String> result = new ArrayList<String>(found);
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Return the settings line for rotor ORDER at starting SETTINGS
+     *  (one per slot, the reflector's included) with each letter A
+     *  steckered to PARTNER[A] (or to itself where that is -1), if it
+     *  deciphers the crib; otherwise null. */
+    String check(String[] order, int[] settings, int[] partner) {
+        StringBuilder line = new StringBuilder("*");
+        for (String name : order) {
+            line.append(' ').append(name);
+        }
+        line.append(' ');
+        for (int i = 1; i < settings.length; i++) {
+            line.append(_alphabet.toChar(settings[i]));
+        }
+        String setting = line.substring(line.length() - settings.length + 1);
+        StringBuilder plugs = new StringBuilder();
+        for (int a = 0; a < _size; a++) {
+            if (partner[a] > a) {
+                plugs.append(" (").append(_alphabet.toChar(a))
+                    .append(_alphabet.toChar(partner[a])).append(')');
+            }
+        }
+        Machine machine = _spec.newMachine();
+        machine.insertRotors(order);
+        machine.setRotors(setting);
+        machine.setPlugboard(new Permutation(plugs.toString(), _alphabet));
+        String plain = machine.convert(
+            _ciphertext.substring(0, _offset + _crib.length()));
+        if (!plain.substring(_offset).equals(_crib)) {
+            return null;
+        }
+        return line.append(plugs).toString();
+    }
+
+    /** Return the spec whose rotors I search. */
+    MachineSpec spec() {
+        return _spec;
+    }
+
+    /** Return the size of the alphabet. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the rotor orders I search. */
+    List<String[]> orders() {
+        return _orders;
+    }
+
+    /** Return the index of the crib's first character in the message. */
+    int offset() {
+        return _offset;
+    }
+
+    /** Return the length of the crib. */
+    int cribLength() {
+        return _plain.length;
+    }
+
+    /** Return the letters joined to letter A in the menu. */
+    int[] links(int a) {
+        return _links[a];
+    }
+
+    /** Return the crib index labelling each edge in links(A). */
+    int[] steps(int a) {
+        return _steps[a];
+    }
+
+    /** Return one letter from each connected part of the menu, the most
+     *  connected letter of the largest part first. */
+    int[] roots() {
+        return _roots;
+    }
+
+    /** The machine description whose rotors are searched. */
+    private final MachineSpec _spec;
+    /** The alphabet of _spec. */
+    private final Alphabet _alphabet;
+    /** The size of _alphabet. */
+    private final int _size;
+    /** The intercepted message, without blanks. */
+    private final String _ciphertext;
+    /** The known plaintext, without blanks. */
+    private final String _crib;
+    /** Index in _ciphertext of the character under the crib's first. */
+    private final int _offset;
+    /** Indices of the characters of the crib. */
+    private final int[] _plain;
+    /** Indices of the characters of the ciphertext under the crib. */
+    private final int[] _cipher;
+    /** For each letter, the letters joined to it in the menu. */
+    private int[][] _links;
+    /** For each letter, the crib index labelling each edge in _links. */
+    private int[][] _steps;
+    /** A letter from each connected part of the menu. */
+    private int[] _roots;
+    /** The rotor orders to search. */
+    private final List<String[]> _orders;
+}
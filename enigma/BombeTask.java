@@ -0,0 +1,299 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.RecursiveAction;
+
+/** A task that runs a Bombe over a range of its units of work, splitting
+ *  the range in halves until single units remain.  Unit U covers rotor
+ *  order U / size with its leftmost non-reflector slot at setting
+ *  U % size, and every setting of the other slots.
+ *  @author Connor Bernard
+ */
+class BombeTask extends RecursiveAction {
+
+    /** Number of recently used scrambler cores kept by each task. */
+    private static final int CORE_CACHE = 64;
+
+    /** A task running BOMBE over units FROM to TO - 1, adding the
+     *  settings line of each confirmed stop to FOUND. */
+    BombeTask(Bombe bombe, int from, int to, Queue<String> found) {
+        _bombe = bombe;
+        _from = from;
+        _to = to;
+        _found = found;
+    }
+
+    @Override
+    protected void compute() {
+        if (_to - _from > 1) {
+            int mid = (_from + _to) >>> 1;
+            invokeAll(new BombeTask(_bombe, _from, mid, _found),
+                      new BombeTask(_bombe, mid, _to, _found));
+        } else if (_to > _from) {
+            int size = _bombe.size();
+            load(_bombe.orders().get(_from / size));
+            scan(_from % size);
+        }
+    }
+
+    /** Prepare to search the rotors named by ORDER. */
+    private void load(String[] order) {
+        int size = _bombe.size();
+        RotorTables tables = new RotorTables(_bombe.spec(), order);
+        _order = order;
+        _slots = tables.slots();
+        _forward = tables.forward();
+        _backward = tables.backward();
+        _notch = tables.notch();
+        _rotates = tables.rotates();
+        _start = new int[_slots];
+        _current = new int[_slots];
+        _advancing = new boolean[_slots];
+        int steps = _bombe.cribLength();
+        _fast = new int[steps];
+        _cores = new int[steps][];
+        _cacheKeys = new long[CORE_CACHE];
+        Arrays.fill(_cacheKeys, -1);
+        _cacheCores = new int[CORE_CACHE][size];
+        _cacheStamps = new int[CORE_CACHE];
+        _partner = new int[size];
+        Arrays.fill(_partner, -1);
+        _queue = new int[size];
+        _tail = 0;
+    }
+
+    /** Test every starting position with the leftmost non-reflector slot
+     *  at setting FIRST. */
+    private void scan(int first) {
+        int size = _bombe.size();
+        Arrays.fill(_start, 0);
+        _start[1] = first;
+        while (true) {
+            prepare();
+            test();
+            int i = _slots - 1;
+            while (i > 1 && _start[i] == size - 1) {
+                _start[i] = 0;
+                i -= 1;
+            }
+            if (i <= 1) {
+                return;
+            }
+            _start[i] += 1;
+        }
+    }
+
+    /** Fill in _fast and _cores for the keystrokes under the crib,
+     *  starting from the settings in _start. */
+    private void prepare() {
+        _stamp += 1;
+        System.arraycopy(_start, 0, _current, 0, _slots);
+        for (int t = 0; t < _bombe.offset(); t++) {
+            step();
+        }
+        for (int i = 0; i < _fast.length; i++) {
+            step();
+            _fast[i] = _current[_slots - 1] * _bombe.size();
+            _cores[i] = core();
+        }
+    }
+
+    /** Advance _current by one keystroke, as Machine does. */
+    private void step() {
+        int last = _slots - 1;
+        for (int i = last; i > 0; i--) {
+            _advancing[i] = false;
+        }
+        for (int i = last; i > 0; i--) {
+            if (_notch[i][_current[i]] && _rotates[i - 1]) {
+                _advancing[i] = true;
+                _advancing[i - 1] = true;
+            }
+        }
+        _advancing[last] = true;
+        for (int i = 1; i <= last; i++) {
+            if (_advancing[i]) {
+                _current[i] += 1;
+                if (_current[i] == _bombe.size()) {
+                    _current[i] = 0;
+                }
+            }
+        }
+    }
+
+    /** Return the combined effect of every rotor but the rightmost at the
+     *  settings in _current, from the right side of the second-rightmost
+     *  rotor through the reflector and back.  A cached core is not
+     *  overwritten while the keystrokes being prepared still use it. */
+    private int[] core() {
+        int size = _bombe.size();
+        long key = 0;
+        for (int i = 1; i < _slots - 1; i++) {
+            key = key * size + _current[i];
+        }
+        int slot = (int) (key % CORE_CACHE);
+        if (_cacheKeys[slot] != key) {
+            if (_cacheStamps[slot] == _stamp) {
+                _cacheCores[slot] = new int[size];
+            }
+            _cacheKeys[slot] = key;
+            int[] result = _cacheCores[slot];
+            for (int c = 0; c < size; c++) {
+                int x = c;
+                for (int i = _slots - 2; i >= 0; i--) {
+                    x = _forward[i][_current[i] * size + x];
+                }
+                for (int i = 1; i < _slots - 1; i++) {
+                    x = _backward[i][_current[i] * size + x];
+                }
+                result[c] = x;
+            }
+        }
+        _cacheStamps[slot] = _stamp;
+        return _cacheCores[slot];
+    }
+
+    /** Return the effect of the rotors and reflector on letter A at
+     *  crib index I. */
+    private int scramble(int i, int a) {
+        int row = _fast[i];
+        int last = _slots - 1;
+        return _backward[last][row + _cores[i][_forward[last][row + a]]];
+    }
+
+    /** Try every plugboard partner of the first menu root at the current
+     *  starting position, reporting each consistent one. */
+    private void test() {
+        int root = _bombe.roots()[0];
+        for (int b = 0; b < _bombe.size(); b++) {
+            if (assume(root, b)) {
+                solveRest(1);
+            }
+            undo(0);
+        }
+    }
+
+    /** Settle the partners of the menu parts from the K-th root on,
+     *  trying each consistent partner for each in turn until the
+     *  settled plugboard passes the Bombe's check, and report that
+     *  result.  Return true iff a result was reported. */
+    private boolean solveRest(int k) {
+        int[] roots = _bombe.roots();
+        if (k == roots.length) {
+            String line = _bombe.check(_order, _start, _partner);
+            if (line != null) {
+                _found.add(line);
+                return true;
+            }
+            return false;
+        }
+        if (_partner[roots[k]] != -1) {
+            return solveRest(k + 1);
+        }
+        int mark = _tail;
+        for (int b = 0; b < _bombe.size(); b++) {
+            boolean solved = assume(roots[k], b) && solveRest(k + 1);
+            undo(mark);
+            if (solved) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Assume that A is steckered to B and follow the consequences
+     *  through the menu and the diagonal board, returning false if they
+     *  contradict one another. */
+    private boolean assume(int a, int b) {
+        int head = _tail;
+        if (!pair(a, b)) {
+            return false;
+        }
+        for (; head < _tail; head++) {
+            int c = _queue[head];
+            int pc = _partner[c];
+            int[] links = _bombe.links(c);
+            int[] steps = _bombe.steps(c);
+            for (int j = 0; j < links.length; j++) {
+                if (!pair(links[j], scramble(steps[j], pc))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Record that A and B are steckered together, returning false if
+     *  either already has another partner. */
+    private boolean pair(int a, int b) {
+        if (_partner[a] == b) {
+            return true;
+        }
+        if (_partner[a] != -1 || _partner[b] != -1) {
+            return false;
+        }
+        _partner[a] = b;
+        _queue[_tail++] = a;
+        if (a != b) {
+            _partner[b] = a;
+            _queue[_tail++] = b;
+        }
+        return true;
+    }
+
+    /** Forget the partners recorded after the first MARK entries of
+     *  _queue. */
+    private void undo(int mark) {
+        while (_tail > mark) {
+            _tail -= 1;
+            _partner[_queue[_tail]] = -1;
+        }
+    }
+
+    /** The search being run. */
+    private final Bombe _bombe;
+    /** First unit of work. */
+    private final int _from;
+    /** Unit of work after the last. */
+    private final int _to;
+    /** Settings lines of the confirmed stops. */
+    private final Queue<String> _found;
+
+    /** Names of the rotors being searched, by slot. */
+    private String[] _order;
+    /** Number of slots. */
+    private int _slots;
+    /** Each slot's rotor forward, indexed by setting * size + input. */
+    private int[][] _forward;
+    /** Each slot's rotor backward, laid out as _forward. */
+    private int[][] _backward;
+    /** Whether each slot's rotor is at a notch at each setting. */
+    private boolean[][] _notch;
+    /** Whether each slot's rotor moves. */
+    private boolean[] _rotates;
+    /** Settings of the slots at the start of the message. */
+    private int[] _start;
+    /** Settings of the slots at the keystroke being prepared. */
+    private int[] _current;
+    /** Scratch flags marking the slots that move on a keystroke. */
+    private boolean[] _advancing;
+    /** For each crib index, the rightmost rotor's setting * size. */
+    private int[] _fast;
+    /** For each crib index, the scrambler core then in place. */
+    private int[][] _cores;
+    /** Key of each cached core, or -1. */
+    private long[] _cacheKeys;
+    /** Cached cores, indexed by key modulo CORE_CACHE. */
+    private int[][] _cacheCores;
+    /** Value of _stamp when each cached core was last used. */
+    private int[] _cacheStamps;
+    /** Number of calls to prepare so far. */
+    private int _stamp;
+    /** Assumed plugboard partner of each letter, or -1. */
+    private int[] _partner;
+    /** Letters whose partners have been assumed, in order. */
+    private int[] _queue;
+    /** Number of entries in _queue. */
+    private int _tail;
+}
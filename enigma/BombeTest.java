@@ -0,0 +1,102 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Bombe class.
+ *  @author Connor Bernard
+ */
+public class BombeTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return a spec with three of the naval rotors and reflector B. */
+    private MachineSpec spec() {
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("II",
+                new Permutation(NAVALA.get("II"), UPPER), "E"));
+        rotors.add(new MovingRotor("III",
+                new Permutation(NAVALA.get("III"), UPPER), "V"));
+        rotors.add(new Reflector("B",
+                new Permutation(NAVALA.get("B"), UPPER)));
+        return new MachineSpec(UPPER, 4, 3, rotors);
+    }
+
+    /** Return MSG enciphered by SPEC with ROTORS at SETTING and PLUGS. */
+    private String encipher(MachineSpec spec, String[] rotors,
+                            String setting, String plugs, String msg) {
+        Machine machine = spec.newMachine();
+        machine.insertRotors(rotors);
+        machine.setRotors(setting);
+        machine.setPlugboard(new Permutation(plugs, UPPER));
+        return machine.convert(msg);
+    }
+
+    @Test
+    public void findsSettings() {
+        MachineSpec spec = spec();
+        String plain = "NOTHINGTOREPORTWEATHERFORECASTRAINANDWIND";
+        String cipher = encipher(spec, new String[] {"B", "III", "I", "II"},
+                                 "XEW", "(AM) (FI) (NV) (PS) (TU) (WZ)",
+                                 plain);
+        List<String> found =
+            new Bombe(spec, cipher, "WEATHERFORECAST", 15).search();
+        assertTrue(found.contains(
+            "* B III I II XEW (AM) (FI) (NV) (PS) (TU) (WZ)"));
+        for (String line : found) {
+            String[] words = line.split(" ");
+            String plugs = String.join(" ",
+                    Arrays.copyOfRange(words, 6, words.length));
+            String deciphered = encipher(spec,
+                new String[] {words[1], words[2], words[3], words[4]},
+                words[5], plugs, cipher);
+            assertEquals("WEATHERFORECAST", deciphered.substring(15, 30));
+        }
+    }
+
+    @Test
+    public void backtracksAcrossMenuParts() {
+        MachineSpec spec = spec();
+        String plain = "NOTHINGTOREPORTWEATHERFORECASTRAINANDWIND";
+        String cipher = encipher(spec, new String[] {"B", "III", "I", "II"},
+                                 "XEW", "(AM) (FI) (NV) (PS) (TU) (WZ)",
+                                 plain);
+        for (int offset = 20; offset <= 21; offset += 1) {
+            String crib = plain.substring(offset, offset + 12);
+            Bombe bombe = new Bombe(spec, cipher, crib, offset);
+            assertTrue(bombe.roots().length > 1);
+            boolean stopped = false;
+            for (String line : bombe.search()) {
+                stopped |= line.startsWith(
+                    "* B III I II XEW (AM) (FI) (NV) (PS) (TU)");
+            }
+            assertTrue(crib, stopped);
+        }
+    }
+
+    @Test
+    public void cribPlacement() {
+        assertTrue(Bombe.fits("ABCDE", "BCD", 0));
+        assertFalse(Bombe.fits("ABCDE", "BCD", 1));
+        assertFalse(Bombe.fits("ABCDE", "BCD", 3));
+        assertFalse(Bombe.fits("ABCDE", "BCD", -1));
+        try {
+            new Bombe(spec(), "ABCDE", "BCD", 1);
+            fail("crib enciphering a letter to itself accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+}
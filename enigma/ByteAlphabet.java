@@ -0,0 +1,165 @@
+package enigma;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/** The symbols of an Alphabet as single bytes of a charset, with tables
+ *  indexed by byte, so that text in that charset can be converted
+ *  without being decoded into characters and encoded again.
+ *
+ *  Only charsets in which every ASCII character is its own byte, and no
+ *  other character contains an ASCII byte, qualify: the single-byte
+ *  charsets such as US-ASCII and ISO-8859-1, in which every byte is one
+ *  character, and UTF-8, in which every byte of a non-ASCII character
+ *  is 0x80 or above.  In UTF-8, only ASCII symbols qualify, and a run of
+ *  bytes 0x80 and above must be decoded as a whole to learn how many
+ *  characters it holds.
+ *  @author Connor Bernard
+ */
+class ByteAlphabet {
+
+    /** Bytes of an ASCII-compatible charset. */
+    private static final int BYTES = 256;
+    /** The first byte that is not ASCII. */
+    static final int NON_ASCII = 0x80;
+
+    /** Tables for ALPHABET in CHARSET, in which each byte B decodes to
+     *  CHARS[B], except that bytes from NON_ASCII on are parts of longer
+     *  characters unless SINGLEBYTE. */
+    private ByteAlphabet(Alphabet alphabet, Charset charset, char[] chars,
+                         boolean singleByte) {
+        _alphabet = alphabet;
+        _charset = charset;
+        _singleByte = singleByte;
+        _indices = new int[BYTES];
+        for (int b = 0; b < BYTES; b++) {
+            _indices[b] = singleByte || b < NON_ASCII
+                ? alphabet.toInt(chars[b]) : -1;
+        }
+        _symbols = new byte[alphabet.size()];
+    }
+
+    /** Return the tables for ALPHABET in CHARSET, or null if CHARSET
+     *  does not qualify or some symbol of ALPHABET is not a single byte
+     *  in it, as a supplementary character never is. */
+    static ByteAlphabet of(Alphabet alphabet, Charset charset) {
+        if (alphabet.size() > BYTES || !alphabet.bmp()) {
+            return null;
+        }
+        char[] chars = new char[BYTES];
+        boolean singleByte;
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            singleByte = false;
+            for (int b = 0; b < NON_ASCII; b++) {
+                chars[b] = (char) b;
+            }
+        } else {
+            CharsetEncoder encoder = charset.newEncoder();
+            CharsetDecoder decoder = decoder(charset);
+            if (encoder.maxBytesPerChar() != 1
+                    || decoder.maxCharsPerByte() != 1) {
+                return null;
+            }
+            singleByte = true;
+            byte[] one = new byte[1];
+            for (int b = 0; b < BYTES; b++) {
+                one[0] = (byte) b;
+                String decoded = decode(decoder, one, 0, 1);
+                if (decoded.length() != 1 || (b < NON_ASCII
+                        ? decoded.charAt(0) != b
+                        : decoded.charAt(0) < NON_ASCII)) {
+                    return null;
+                }
+                chars[b] = decoded.charAt(0);
+            }
+        }
+        ByteAlphabet result =
+            new ByteAlphabet(alphabet, charset, chars, singleByte);
+        CharsetEncoder encoder = charset.newEncoder();
+        for (int k = 0; k < alphabet.size(); k++) {
+            char c = alphabet.toChar(k);
+            ByteBuffer encoded;
+            try {
+                encoded = encoder.encode(CharBuffer.wrap(new char[] {c}));
+            } catch (CharacterCodingException excp) {
+                return null;
+            }
+            if (encoded.remaining() != 1
+                    || result.toInt(encoded.get(0) & 0xFF) != k) {
+                return null;
+            }
+            result._symbols[k] = encoded.get(0);
+        }
+        return result;
+    }
+
+    /** Return a decoder for CHARSET that replaces what it cannot decode,
+     *  as the readers of the default charset do. */
+    private static CharsetDecoder decoder(Charset charset) {
+        return charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /** Return the LEN bytes of BYTES starting at OFF decoded by
+     *  DECODER. */
+    private static String decode(CharsetDecoder decoder, byte[] bytes,
+                                 int off, int len) {
+        try {
+            return decoder.reset()
+                .decode(ByteBuffer.wrap(bytes, off, len)).toString();
+        } catch (CharacterCodingException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+
+    /** Return the alphabet whose symbols I encode. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return true iff every byte is one character. */
+    boolean singleByte() {
+        return _singleByte;
+    }
+
+    /** Return the index in my alphabet of the character that is byte B
+     *  (in the range 0..255), or -1 if there is none or B is part of a
+     *  longer character. */
+    int toInt(int b) {
+        return _indices[b];
+    }
+
+    /** Return the byte that is symbol INDEX of my alphabet. */
+    byte toByte(int index) {
+        return _symbols[index];
+    }
+
+    /** Return the LEN bytes of BYTES starting at OFF decoded as a
+     *  reader of my charset would decode them. */
+    String decode(byte[] bytes, int off, int len) {
+        return decode(decoder(_charset), bytes, off, len);
+    }
+
+    /** Return STR encoded in my charset. */
+    byte[] encode(String str) {
+        return str.getBytes(_charset);
+    }
+
+    /** The alphabet whose symbols I encode. */
+    private final Alphabet _alphabet;
+    /** The charset of the bytes. */
+    private final Charset _charset;
+    /** True iff every byte is one character. */
+    private final boolean _singleByte;
+    /** Index in _alphabet of each byte, or -1. */
+    private final int[] _indices;
+    /** Byte of each symbol of _alphabet, by index. */
+    private final byte[] _symbols;
+}
@@ -0,0 +1,91 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the ByteAlphabet class.
+ *  @author Connor Bernard
+ */
+public class ByteAlphabetTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    @Test
+    public void tablesForAscii() {
+        for (Charset charset : new Charset[] {StandardCharsets.US_ASCII,
+                StandardCharsets.ISO_8859_1, StandardCharsets.UTF_8}) {
+            ByteAlphabet bytes = ByteAlphabet.of(UPPER, charset);
+            assertNotNull(bytes);
+            for (int k = 0; k < UPPER.size(); k++) {
+                assertEquals(UPPER_STRING.charAt(k), bytes.toByte(k));
+                assertEquals(k, bytes.toInt(UPPER_STRING.charAt(k)));
+            }
+            assertEquals(-1, bytes.toInt('a'));
+            assertEquals(-1, bytes.toInt(0xC9));
+        }
+        assertTrue(ByteAlphabet.of(UPPER, StandardCharsets.ISO_8859_1)
+                   .singleByte());
+        assertFalse(ByteAlphabet.of(UPPER, StandardCharsets.UTF_8)
+                    .singleByte());
+    }
+
+    @Test
+    public void onlySingleByteSymbols() {
+        Alphabet accented = new Alphabet("ABC\u00c9");
+        ByteAlphabet latin = ByteAlphabet.of(accented,
+                                             StandardCharsets.ISO_8859_1);
+        assertNotNull(latin);
+        assertEquals(3, latin.toInt(0xC9));
+        assertEquals((byte) 0xC9, latin.toByte(3));
+        assertNull(ByteAlphabet.of(accented, StandardCharsets.UTF_8));
+        assertNull(ByteAlphabet.of(accented, StandardCharsets.US_ASCII));
+        assertNull(ByteAlphabet.of(UPPER, StandardCharsets.UTF_16));
+        Alphabet supplementary = new Alphabet("AB\ud840\udc00");
+        assertNull(ByteAlphabet.of(supplementary, StandardCharsets.UTF_8));
+        assertNull(ByteAlphabet.of(supplementary,
+                                   StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void decodesRuns() {
+        ByteAlphabet bytes = ByteAlphabet.of(UPPER, StandardCharsets.UTF_8);
+        byte[] run = "\u00e9\u20ac".getBytes(StandardCharsets.UTF_8);
+        assertEquals("\u00e9\u20ac", bytes.decode(run, 0, run.length));
+        assertEquals(2, bytes.decode(run, 0, 3).length());
+    }
+
+    @Test
+    public void convertsBytesAsCharacters() {
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("II",
+                new Permutation(NAVALA.get("II"), UPPER), "E"));
+        rotors.add(new Reflector("B",
+                new Permutation(NAVALA.get("B"), UPPER)));
+        MachineSpec spec = new MachineSpec(UPPER, 3, 2, rotors);
+        String msg = "HELLOWORLDTHEQUICKBROWNFOXJUMPSOVERTHELAZYDOG";
+        Machine chars = spec.newMachine();
+        Machine bytes = spec.newMachine();
+        for (Machine machine : new Machine[] {chars, bytes}) {
+            machine.insertRotors(new String[] {"B", "I", "II"});
+            machine.setRotors("QD");
+            machine.setPlugboard(new Permutation("(AZ) (HK)", UPPER));
+        }
+        byte[] text = msg.getBytes(StandardCharsets.US_ASCII);
+        bytes.convert(text, 0, text.length, text, 0,
+                      ByteAlphabet.of(UPPER, StandardCharsets.US_ASCII));
+        assertEquals(chars.convert(msg),
+                     new String(text, StandardCharsets.US_ASCII));
+    }
+}
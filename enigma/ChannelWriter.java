@@ -0,0 +1,103 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/** A Writer that encodes characters with the default charset straight
+ *  into a direct buffer and writes that buffer to a file channel, without
+ *  passing through an output stream.
+ *  @author Connor Bernard
+ */
+class ChannelWriter extends Writer {
+
+    /** Number of characters, and of bytes, buffered before writing. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** A writer sending its output to CHANNEL. */
+    ChannelWriter(FileChannel channel) {
+        _channel = channel;
+        _encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (_chars.position() == BUFFER_SIZE) {
+            encode(false);
+        }
+        _chars.put((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            if (_chars.position() == BUFFER_SIZE) {
+                encode(false);
+            }
+            int n = Math.min(len, _chars.remaining());
+            _chars.put(cbuf, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = 0; i < len; i++) {
+            write(str.charAt(off + i));
+        }
+    }
+
+    /** Encode the buffered characters into _bytes, writing _bytes out as
+     *  it fills.  When END, this is the last of the output. */
+    private void encode(boolean end) throws IOException {
+        _chars.flip();
+        while (_encoder.encode(_chars, _bytes, end).isOverflow()) {
+            drain();
+        }
+        if (end) {
+            while (_encoder.flush(_bytes).isOverflow()) {
+                drain();
+            }
+        }
+        _chars.compact();
+    }
+
+    /** Write the contents of _bytes to the channel. */
+    private void drain() throws IOException {
+        _bytes.flip();
+        while (_bytes.hasRemaining()) {
+            _channel.write(_bytes);
+        }
+        _bytes.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        encode(false);
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        encode(true);
+        drain();
+        _channel.close();
+    }
+
+    /** The destination file. */
+    private final FileChannel _channel;
+    /** Converts characters to the default charset. */
+    private final CharsetEncoder _encoder;
+    /** Characters not yet encoded. */
+    private final CharBuffer _chars = CharBuffer.allocate(BUFFER_SIZE);
+    /** Encoded bytes not yet written. */
+    private final ByteBuffer _bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+}
@@ -0,0 +1,191 @@
+package enigma;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static enigma.EnigmaException.*;
+
+/** Reads and writes machine configurations in a compact binary form, so
+ *  that they can be loaded without parsing cycle notation.  A compiled
+ *  file holds, in order: MAGIC and VERSION; the alphabet; the numbers of
+ *  slots and pawls; each rotor's name, kind, notches and the image of
+ *  every index under its permutation; and finally a CRC-32 checksum of
+ *  everything before it.
+ *  @author Connor Bernard
+ */
+class CompiledConfig {
+
+    /** Marks the start of a compiled configuration. */
+    static final int MAGIC = 0x454e4947;
+    /** Version of the format written by write. */
+    static final int VERSION = 1;
+
+    /** Length of the checksum that ends a compiled configuration. */
+    private static final int CHECKSUM_SIZE = Long.BYTES;
+
+    /** Kind code for a MovingRotor. */
+    private static final byte MOVING = 'M';
+    /** Kind code for a FixedRotor. */
+    private static final byte FIXED = 'N';
+    /** Kind code for a Reflector. */
+    private static final byte REFLECTOR = 'R';
+
+    /** Not instantiable. */
+    private CompiledConfig() {
+    }
+
+    /** Return true iff the file named NAME starts with MAGIC. */
+    static boolean isCompiled(String name) {
+        try (DataInputStream in =
+                new DataInputStream(new FileInputStream(name))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Write SPEC in compiled form to the file named NAME. */
+    static void write(MachineSpec spec, String name) {
+        try (OutputStream out =
+                new BufferedOutputStream(new FileOutputStream(name))) {
+            write(spec, out);
+        } catch (IOException excp) {
+            throw error("could not write %s", name);
+        }
+    }
+
+    /** Write SPEC in compiled form to OUTPUT. */
+    static void write(MachineSpec spec, OutputStream output)
+        throws IOException {
+        CheckedOutputStream checked =
+            new CheckedOutputStream(output, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        Alphabet alphabet = spec.alphabet();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeChars(out, alphabet.getAlphabetString());
+        out.writeInt(spec.numRotors());
+        out.writeInt(spec.numPawls());
+        out.writeInt(spec.rotors().size());
+        for (Rotor rotor : spec.rotors().values()) {
+            out.writeUTF(rotor.name());
+            if (rotor.reflecting()) {
+                out.writeByte(REFLECTOR);
+            } else if (rotor.rotates()) {
+                out.writeByte(MOVING);
+                writeChars(out, ((MovingRotor) rotor).notches());
+            } else {
+                out.writeByte(FIXED);
+            }
+            for (int i = 0; i < alphabet.size(); i++) {
+                out.writeInt(rotor.permutation().permute(i));
+            }
+        }
+        out.flush();
+        out.writeLong(checked.getChecksum().getValue());
+        out.flush();
+    }
+
+    /** Return the spec compiled into the file named NAME. */
+    static MachineSpec read(String name) {
+        try (InputStream in = new FileInputStream(name)) {
+            return read(in);
+        } catch (IOException excp) {
+            throw error("could not read %s", name);
+        }
+    }
+
+    /** Return the spec compiled into INPUT.  The checksum is verified
+     *  before any length read from INPUT is trusted. */
+    static MachineSpec read(InputStream input) throws IOException {
+        byte[] data = input.readAllBytes();
+        int body = Math.max(0, data.length - CHECKSUM_SIZE);
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(data, 0, body));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw error("not a compiled configuration");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw error("unsupported compiled configuration version %d",
+                            version);
+            }
+            CRC32 sum = new CRC32();
+            sum.update(data, 0, body);
+            if (ByteBuffer.wrap(data, body, CHECKSUM_SIZE).getLong()
+                != sum.getValue()) {
+                throw error("compiled configuration checksum mismatch");
+            }
+            Alphabet alphabet = new Alphabet(readChars(in));
+            int numRotors = in.readInt();
+            int pawls = in.readInt();
+            int count = in.readInt();
+            ArrayList<String> names = new ArrayList<String>();
+            ArrayList<Byte> kinds = new ArrayList<Byte>();
+            ArrayList<String> notches = new ArrayList<String>();
+            ArrayList<int[]> forward = new ArrayList<int[]>();
+            for (int k = 0; k < count; k++) {
+                names.add(in.readUTF());
+                kinds.add(in.readByte());
+                notches.add(kinds.get(k) == MOVING ? readChars(in) : null);
+                int[] table = new int[alphabet.size()];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = in.readInt();
+                }
+                forward.add(table);
+            }
+            ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+            for (int k = 0; k < count; k++) {
+                Permutation perm = new Permutation(forward.get(k), alphabet);
+                byte kind = kinds.get(k);
+                if (kind == MOVING) {
+                    rotors.add(new MovingRotor(names.get(k), perm,
+                                               notches.get(k)));
+                } else if (kind == FIXED) {
+                    rotors.add(new FixedRotor(names.get(k), perm));
+                } else if (kind == REFLECTOR) {
+                    rotors.add(new Reflector(names.get(k), perm));
+                } else {
+                    throw error("bad rotor kind in compiled configuration");
+                }
+            }
+            return new MachineSpec(alphabet, numRotors, pawls, rotors);
+        } catch (EOFException excp) {
+            throw error("compiled configuration truncated");
+        }
+    }
+
+    /** Write the length of S and then its characters to OUT. */
+    private static void writeChars(DataOutputStream out, String s)
+        throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    /** Return a string written by writeChars, read from IN, which must
+     *  know how many bytes it has left. */
+    private static String readChars(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > in.available() / Character.BYTES) {
+            throw error("bad string length in compiled configuration");
+        }
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+}
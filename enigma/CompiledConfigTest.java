@@ -0,0 +1,100 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CompiledConfig class.
+ *  @author Connor Bernard
+ */
+public class CompiledConfigTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return a spec with some of the naval rotors. */
+    private MachineSpec navalSpec() {
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("III",
+                new Permutation(NAVALA.get("III"), UPPER), "V"));
+        rotors.add(new MovingRotor("IV",
+                new Permutation(NAVALA.get("IV"), UPPER), "J"));
+        rotors.add(new FixedRotor("Beta",
+                new Permutation(NAVALA.get("Beta"), UPPER)));
+        rotors.add(new Reflector("B",
+                new Permutation(NAVALA.get("B"), UPPER)));
+        return new MachineSpec(UPPER, 5, 3, rotors);
+    }
+
+    /** Return the result of converting "FROMHISSHOULDER" with a machine
+     *  built to SPEC. */
+    private String convert(MachineSpec spec) {
+        Machine enigma = spec.newMachine();
+        enigma.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+        enigma.setRotors("AXLE");
+        enigma.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                            UPPER));
+        return enigma.convert("FROMHISSHOULDER");
+    }
+
+    @Test
+    public void checkRoundTrip() throws IOException {
+        MachineSpec spec = navalSpec();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledConfig.write(spec, out);
+        MachineSpec copy =
+            CompiledConfig.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(UPPER_STRING, copy.alphabet().getAlphabetString());
+        assertEquals(5, copy.numRotors());
+        assertEquals(3, copy.numPawls());
+        assertEquals(spec.rotors().keySet(), copy.rotors().keySet());
+        assertEquals(convert(spec), convert(copy));
+    }
+
+    @Test
+    public void checkCorrupted() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledConfig.write(navalSpec(), out);
+        byte[] bytes = out.toByteArray();
+        bytes[bytes.length / 2] ^= 1;
+        try {
+            CompiledConfig.read(new ByteArrayInputStream(bytes));
+            fail("corrupted configuration accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void checkOversizedLength() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CheckedOutputStream checked =
+            new CheckedOutputStream(bytes, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        out.writeInt(CompiledConfig.MAGIC);
+        out.writeInt(CompiledConfig.VERSION);
+        out.writeInt(Integer.MAX_VALUE);
+        out.flush();
+        out.writeLong(checked.getChecksum().getValue());
+        try {
+            CompiledConfig.read(new ByteArrayInputStream(bytes.toByteArray()));
+            fail("oversized length accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package enigma;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+
+import static enigma.EnigmaException.*;
+
+/** A server that converts messages for any number of clients with one
+ *  machine, so that the configuration is read, and the JVM started, only
+ *  once.  Every connection is served by a single thread through a
+ *  Selector, and each request is converted as soon as it has arrived,
+ *  without handing it to another thread.
+ *
+ *  A request is a 4-byte big-endian length followed by that many bytes
+ *  of UTF-8 text: a settings line, and then the lines of a message, all
+ *  ended by newlines.  The response is a 4-byte big-endian length
+ *  followed by that many bytes: a status byte, OK or FAILED, and then
+ *  UTF-8 text: the converted lines, grouped as Main prints them, each
+ *  ended by a newline; or the error message.  A client may send several
+ *  requests without waiting; the responses come back in order.
+ *  @author Connor Bernard
+ */
+class EnigmaServer {
+
+    /** Status of a response carrying converted text. */
+    static final byte OK = 0;
+    /** Status of a response carrying an error message. */
+    static final byte FAILED = 1;
+    /** Longest request accepted, in bytes.  A connection that announces
+     *  a longer one is closed. */
+    static final int MAX_REQUEST = 1 << 24;
+
+    /** A server that answers requests arriving on ADDRESS with MACHINE,
+     *  set up for each through MAIN. */
+    EnigmaServer(Main main, Machine machine, SocketAddress address) {
+        _main = main;
+        _machine = machine;
+        try {
+            if (address instanceof UnixDomainSocketAddress) {
+                _unixPath = ((UnixDomainSocketAddress) address).getPath();
+                removeStaleSocket(_unixPath);
+                _listener =
+                    ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            } else {
+                _listener = ServerSocketChannel.open();
+            }
+            _listener.bind(address);
+            _listener.configureBlocking(false);
+            _selector = Selector.open();
+            _listener.register(_selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException excp) {
+            throw error("could not listen on %s", address);
+        }
+    }
+
+    /** Remove the socket file at PATH, left behind by a server that was
+     *  killed, so that it can be bound again.  Anything else at PATH is
+     *  left alone. */
+    private static void removeStaleSocket(Path path) throws IOException {
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)
+                && Files.readAttributes(path, BasicFileAttributes.class,
+                                        LinkOption.NOFOLLOW_LINKS)
+                    .isOther()) {
+            Files.delete(path);
+        }
+    }
+
+    /** Return the address for NAME: the loopback interface at port NAME
+     *  if it is a number, and otherwise a Unix-domain socket at path
+     *  NAME. */
+    static SocketAddress address(String name) {
+        if (name.matches("\\d+")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                         Integer.parseInt(name));
+        }
+        return UnixDomainSocketAddress.of(name);
+    }
+
+    /** Return the address on which I listen. */
+    SocketAddress localAddress() {
+        try {
+            return _listener.getLocalAddress();
+        } catch (IOException excp) {
+            throw error("server closed");
+        }
+    }
+
+    /** Serve clients until stop is called. */
+    void run() {
+        try {
+            while (!_stopping) {
+                _selector.select();
+                Iterator<SelectionKey> keys =
+                    _selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            serve(key);
+                        }
+                    } catch (IOException excp) {
+                        close(key);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException excp) {
+            if (!_stopping) {
+                throw error("server failed: %s", excp.getMessage());
+            }
+        } finally {
+            shutDown();
+        }
+    }
+
+    /** Make run return, closing every connection.  May be called from
+     *  any thread. */
+    void stop() {
+        _stopping = true;
+        _selector.wakeup();
+    }
+
+    /** Wait until run has closed every connection and the listener and
+     *  returned. */
+    void awaitShutDown() throws InterruptedException {
+        _shutDown.await();
+    }
+
+    /** Accept a waiting connection, if any. */
+    private void accept() throws IOException {
+        SocketChannel client = _listener.accept();
+        if (client == null) {
+            return;
+        }
+        client.configureBlocking(false);
+        if (_unixPath == null) {
+            client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        client.register(_selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    /** Read what has arrived on the connection of KEY, answer each
+     *  request completed by it, and send what can be sent.  While more
+     *  than OUTPUT_LIMIT bytes of responses wait to be sent, no more
+     *  requests are answered and nothing more is read, so that a client
+     *  that does not read its responses cannot make them pile up. */
+    private void serve(SelectionKey key) throws IOException {
+        SocketChannel client = (SocketChannel) key.channel();
+        Connection conn = (Connection) key.attachment();
+        if (key.isReadable()) {
+            if (client.read(conn.input) < 0) {
+                close(key);
+                return;
+            }
+        }
+        conn.input.flip();
+        boolean held = false;
+        while (conn.input.remaining() >= 4) {
+            int length = conn.input.getInt(conn.input.position());
+            if (length < 0 || length > MAX_REQUEST) {
+                close(key);
+                return;
+            }
+            if (conn.input.remaining() < 4 + length) {
+                if (conn.input.capacity() < 4 + length) {
+                    ByteBuffer bigger =
+                        ByteBuffer.allocateDirect(4 + length);
+                    bigger.put(conn.input).flip();
+                    conn.input = bigger;
+                }
+                break;
+            }
+            if (conn.output.position() > OUTPUT_LIMIT) {
+                held = true;
+                break;
+            }
+            conn.input.getInt();
+            byte[] request = new byte[length];
+            conn.input.get(request);
+            answer(conn, new String(request, StandardCharsets.UTF_8));
+        }
+        conn.input.compact();
+        conn.output.flip();
+        client.write(conn.output);
+        conn.output.compact();
+        int ops = 0;
+        if (conn.output.position() <= OUTPUT_LIMIT) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (conn.output.position() > 0 || held) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    /** Append the response to REQUEST to the output of CONN. */
+    private void answer(Connection conn, String request) {
+        byte status = OK;
+        String text;
+        try {
+            text = _main.respond(_machine, request);
+        } catch (EnigmaException excp) {
+            status = FAILED;
+            text = excp.getMessage();
+        } catch (IOException excp) {
+            status = FAILED;
+            text = "bad request: " + excp;
+        }
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        if (conn.output.remaining() < 5 + body.length) {
+            conn.output = grow(conn.output, conn.output.position() + 5
+                               + body.length);
+        }
+        conn.output.putInt(1 + body.length).put(status).put(body);
+    }
+
+    /** Return a buffer in write mode holding the contents of BUFFER, also
+     *  in write mode, with room for at least CAPACITY bytes. */
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer result = ByteBuffer.allocateDirect(
+            Math.max(capacity, 2 * buffer.capacity()));
+        buffer.flip();
+        result.put(buffer);
+        return result;
+    }
+
+    /** Close the connection of KEY. */
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException excp) {
+            /* Nothing more to do with it. */
+        }
+    }
+
+    /** Close the listener and every connection. */
+    private void shutDown() {
+        try {
+            for (SelectionKey key : _selector.keys()) {
+                key.channel().close();
+            }
+            _selector.close();
+            if (_unixPath != null) {
+                Files.deleteIfExists(_unixPath);
+            }
+        } catch (IOException excp) {
+            /* Shutting down anyway. */
+        } finally {
+            _shutDown.countDown();
+        }
+    }
+
+    /** The buffers of a client connection. */
+    private static final class Connection {
+        /** Bytes received and not yet answered, in write mode. */
+        private ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        /** Bytes of responses not yet sent, in write mode. */
+        private ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /** Bytes of unsent responses beyond which a connection is not read
+     *  from. */
+    static final int OUTPUT_LIMIT = 1 << 20;
+
+    /** Initial size of each connection's buffers. */
+    private static final int BUFFER_SIZE = 1 << 12;
+
+    /** Sets up _machine for each request and formats its output. */
+    private final Main _main;
+    /** The machine shared by every request. */
+    private final Machine _machine;
+    /** Accepts connections. */
+    private ServerSocketChannel _listener;
+    /** Selects the channels ready for work. */
+    private Selector _selector;
+    /** The path of the Unix-domain socket listened on, or null. */
+    private Path _unixPath;
+    /** True once stop has been called. */
+    private volatile boolean _stopping;
+    /** Released once run has shut down. */
+    private final CountDownLatch _shutDown = new CountDownLatch(1);
+}
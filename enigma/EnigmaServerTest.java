@@ -0,0 +1,176 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the EnigmaServer class.
+ *  @author Connor Bernard
+ */
+public class EnigmaServerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return a server for the naval rotors listening on ADDRESS and
+     *  running on a thread of its own. */
+    private EnigmaServer start(String address) throws IOException {
+        File config = File.createTempFile("naval", ".conf");
+        config.deleteOnExit();
+        StringBuilder text = new StringBuilder(UPPER_STRING + " 5 3\n");
+        String[][] rotors = {
+            {"I", "MQ"}, {"II", "ME"}, {"III", "MV"}, {"Beta", "N"},
+            {"B", "R"},
+        };
+        for (String[] rotor : rotors) {
+            text.append(rotor[0]).append(' ').append(rotor[1]).append(' ')
+                .append(NAVALA.get(rotor[0])).append('\n');
+        }
+        Files.write(config.toPath(),
+                    text.toString().getBytes(StandardCharsets.UTF_8));
+        Main main = new Main(new String[] {config.getPath()});
+        EnigmaServer server = new EnigmaServer(main, main.readConfig(),
+            EnigmaServer.address(address));
+        Thread thread = new Thread(server::run);
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    /** Send REQUEST on CLIENT. */
+    private void send(SocketChannel client, String request)
+        throws IOException {
+        byte[] body = request.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(4 + body.length);
+        frame.putInt(body.length).put(body).flip();
+        while (frame.hasRemaining()) {
+            client.write(frame);
+        }
+    }
+
+    /** Return the next response on CLIENT, preceded by "+" if it is OK
+     *  and "-" otherwise. */
+    private String receive(SocketChannel client) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        fill(client, length);
+        ByteBuffer body = ByteBuffer.allocate(length.getInt(0));
+        fill(client, body);
+        String text = new String(body.array(), 1, body.capacity() - 1,
+                                 StandardCharsets.UTF_8);
+        return (body.get(0) == EnigmaServer.OK ? "+" : "-") + text;
+    }
+
+    /** Read from CLIENT until BUFFER is full. */
+    private void fill(SocketChannel client, ByteBuffer buffer)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) {
+                throw new IOException("connection closed");
+            }
+        }
+    }
+
+    @Test
+    public void convertsOverTcp() throws IOException {
+        EnigmaServer server = start("0");
+        SocketAddress address = server.localAddress();
+        try (SocketChannel client = SocketChannel.open(address);
+             SocketChannel other = SocketChannel.open(address)) {
+            send(client, "* B Beta I II III AAAA\nHELLO WORLD\n");
+            send(other, "* B Beta I II III AAAA\nILBDA AMTAZ");
+            send(client, "* B Beta I II III AAAA\n\n  HEL LOW\n");
+            send(client, "HELLO\n");
+            send(client, "* B Beta I I III AAAA\nHELLO\n");
+            assertEquals("+ILBDA AMTAZ\n", receive(client));
+            assertEquals("+HELLO WORLD\n", receive(other));
+            assertEquals("+\nILBDA A\n", receive(client));
+            assertTrue(receive(client).startsWith("-"));
+            assertEquals("-Duplicate rotor name.", receive(client));
+            send(client, "* B Beta I II III AAAA\nHELLO\n");
+            assertEquals("+ILBDA\n", receive(client));
+            send(client, "* B Beta I II III AAA\nHELLO\n");
+            assertEquals("-Setting too short", receive(client));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void printsBlankLinesAsMainDoes() throws IOException {
+        EnigmaServer server = start("0");
+        try (SocketChannel client =
+                 SocketChannel.open(server.localAddress())) {
+            send(client, "* B Beta I II III AAAA\n   \nHELLO\n\r\n");
+            assertEquals("+ILBDA\n\n", receive(client));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void holdsRequestsOfSlowReaders() throws Exception {
+        EnigmaServer server = start("0");
+        StringBuilder msg = new StringBuilder("* B Beta I II III AAAA\n");
+        for (int i = 0; i < 60000; i += 1) {
+            msg.append((char) ('A' + i % 26));
+        }
+        String request = msg.append('\n').toString();
+        int count = 2 * EnigmaServer.OUTPUT_LIMIT / 60000 + 10;
+        try (SocketChannel client =
+                 SocketChannel.open(server.localAddress())) {
+            Thread sender = new Thread(() -> {
+                try {
+                    for (int k = 0; k < count; k += 1) {
+                        send(client, request);
+                    }
+                } catch (IOException excp) {
+                    /* Reported by the receiving side. */
+                }
+            });
+            sender.start();
+            Thread.sleep(200);
+            String first = receive(client);
+            assertTrue(first.startsWith("+"));
+            for (int k = 1; k < count; k += 1) {
+                assertEquals(first, receive(client));
+            }
+            sender.join();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void convertsOverUnixSocket() throws IOException {
+        File dir = Files.createTempDirectory("enigma").toFile();
+        dir.deleteOnExit();
+        String path = new File(dir, "enigma.sock").getPath();
+        ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+            .bind(UnixDomainSocketAddress.of(path)).close();
+        assertTrue(new File(path).exists());
+        EnigmaServer server = start(path);
+        try (SocketChannel client =
+                 SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            client.connect(UnixDomainSocketAddress.of(path));
+            send(client, "* B Beta I II III AAAA\nHELLO WORLD\n");
+            assertEquals("+ILBDA AMTAZ\n", receive(client));
+        } finally {
+            server.stop();
+        }
+    }
+}
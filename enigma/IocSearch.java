@@ -0,0 +1,181 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only search for the rotor order, ring settings and
+ *  starting position of a message, with an empty plugboard, that
+ *  ranks candidates by the index of coincidence of their decryptions:
+ *  the chance that two letters drawn from a text are the same, which is
+ *  near 1/size for random text and markedly higher for language.
+ *
+ *  A ring setting only moves a rotor's notches relative to its wiring,
+ *  so it matters only for rotors whose notches move the rotor to their
+ *  left, and for those only in so far as a notch is reached during the
+ *  message.  Ring settings under which a rotor never reaches a notch
+ *  all decipher alike, so only the first of them is tried.
+ *  @author Connor Bernard
+ */
+class IocSearch {
+
+    /** A search of the rotors of SPEC for the settings of CIPHERTEXT,
+     *  ignoring blanks, keeping the BEST highest scoring candidates. */
+    IocSearch(MachineSpec spec, String ciphertext, int best) {
+        _spec = spec;
+        _alphabet = spec.alphabet();
+        String text = ciphertext.replace(" ", "");
+        if (text.length() < 2) {
+            throw error("message too short to score");
+        }
+        if (best < 1) {
+            throw error("must keep at least one candidate");
+        }
+        _cipher = new int[text.length()];
+        for (int i = 0; i < text.length(); i++) {
+            _cipher[i] = _alphabet.toInt(text.charAt(i));
+            if (_cipher[i] < 0) {
+                throw error("character %c not in alphabet", text.charAt(i));
+            }
+        }
+        _best = best;
+        _orders = spec.rotorOrders();
+    }
+
+    /** Return the best candidates, best first, searching on all the
+     *  threads of the common ForkJoinPool. */
+    List<Candidate> search() {
+        PriorityQueue<Candidate> heap = ForkJoinPool.commonPool().invoke(
+            new IocTask(this, 0, _orders.size() * _alphabet.size()));
+        ArrayList<Candidate> result = new ArrayList<Candidate>(heap);
+        Collections.sort(result, Collections.reverseOrder());
+        return result;
+    }
+
+    /** Add CANDIDATE to HEAP, which holds the best candidates so far,
+     *  lowest first, dropping the lowest if there are then too many. */
+    void offer(PriorityQueue<Candidate> heap, Candidate candidate) {
+        heap.add(candidate);
+        if (heap.size() > _best) {
+            heap.poll();
+        }
+    }
+
+    /** Return true iff a candidate with COINCIDENCES would be kept in
+     *  HEAP. */
+    boolean qualifies(PriorityQueue<Candidate> heap, long coincidences) {
+        return heap.size() < _best
+            || coincidences > heap.peek().coincidences();
+    }
+
+    /** Return the settings line for rotor ORDER with each slot's rotor at
+     *  internal position START and ring offset RING. */
+    String settingsLine(String[] order, int[] start, int[] ring) {
+        int size = _alphabet.size();
+        StringBuilder line = new StringBuilder("*");
+        for (String name : order) {
+            line.append(' ').append(name);
+        }
+        StringBuilder rings = new StringBuilder();
+        line.append(' ');
+        for (int i = 1; i < order.length; i++) {
+            line.append(_alphabet.toChar((start[i] + ring[i]) % size));
+            rings.append(_alphabet.toChar(ring[i]));
+        }
+        return line.append(' ').append(rings).toString();
+    }
+
+    /** Return the spec whose rotors I search. */
+    MachineSpec spec() {
+        return _spec;
+    }
+
+    /** Return the size of the alphabet. */
+    int size() {
+        return _alphabet.size();
+    }
+
+    /** Return the rotor orders I search. */
+    List<String[]> orders() {
+        return _orders;
+    }
+
+    /** Return the indices of the ciphertext characters. */
+    int[] cipher() {
+        return _cipher;
+    }
+
+    /** A scored setting of the machine. */
+    static final class Candidate implements Comparable<Candidate> {
+
+        /** A candidate whose decryption has COINCIDENCES ordered pairs of
+         *  equal letters among its LENGTH letters, under the settings
+         *  line SETTINGS. */
+        Candidate(long coincidences, long length, String settings) {
+            _coincidences = coincidences;
+            _length = length;
+            _settings = settings;
+        }
+
+        /** Return the number of ordered pairs of equal letters. */
+        long coincidences() {
+            return _coincidences;
+        }
+
+        /** Return the index of coincidence of the decryption. */
+        double ioc() {
+            return (double) _coincidences / (_length * (_length - 1));
+        }
+
+        /** Return my settings line. */
+        String settings() {
+            return _settings;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (_coincidences != other._coincidences) {
+                return Long.compare(_coincidences, other._coincidences);
+            }
+            return other._settings.compareTo(_settings);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Candidate
+                && compareTo((Candidate) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return _settings.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.5f %s", ioc(), _settings);
+        }
+
+        /** Number of ordered pairs of equal letters in the decryption. */
+        private final long _coincidences;
+        /** Number of letters in the decryption. */
+        private final long _length;
+        /** Settings line. */
+        private final String _settings;
+    }
+
+    /** The machine description whose rotors are searched. */
+    private final MachineSpec _spec;
+    /** The alphabet of _spec. */
+    private final Alphabet _alphabet;
+    /** Indices of the ciphertext characters. */
+    private final int[] _cipher;
+    /** Number of candidates to keep. */
+    private final int _best;
+    /** The rotor orders to search. */
+    private final List<String[]> _orders;
+}
@@ -0,0 +1,95 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the IocSearch class.
+ *  @author Connor Bernard
+ */
+public class IocSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** A German plaintext long enough to score. */
+    private static final String PLAIN =
+        "DERFUEHRERHATBEFOHLENDASSDIEDRITTEARMEEMITALLENVERFUEGBAREN"
+        + "KRAEFTENSOFORTNACHOSTENVORSTOESSTUNDDIEBRUECKENUEBERDENFLUSS"
+        + "BISMORGENFRUEHSICHERTMELDUNGENUEBERDIELAGEJEDEVIERTESTUNDE";
+
+    /** Return a spec with two moving slots, three of the naval rotors,
+     *  and reflector B. */
+    private MachineSpec spec() {
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("II",
+                new Permutation(NAVALA.get("II"), UPPER), "E"));
+        rotors.add(new MovingRotor("III",
+                new Permutation(NAVALA.get("III"), UPPER), "V"));
+        rotors.add(new Reflector("B",
+                new Permutation(NAVALA.get("B"), UPPER)));
+        return new MachineSpec(UPPER, 3, 2, rotors);
+    }
+
+    /** Return MSG converted by SPEC with ROTORS at SETTING, ring
+     *  settings RINGS, and an empty plugboard. */
+    private String convert(MachineSpec spec, String[] rotors,
+                           String setting, String rings, String msg) {
+        Machine machine = spec.newMachine();
+        machine.insertRotors(rotors);
+        machine.setAlphabets(rings);
+        machine.setRotors(setting);
+        machine.setPlugboard(new Permutation("", UPPER));
+        return machine.convert(msg);
+    }
+
+    @Test
+    public void findsSettings() {
+        MachineSpec spec = spec();
+        String cipher = convert(spec, new String[] {"B", "III", "I"},
+                                "RK", "GC", PLAIN);
+        List<IocSearch.Candidate> found =
+            new IocSearch(spec, cipher, 3).search();
+        assertEquals(3, found.size());
+        assertTrue(found.get(0).ioc() >= found.get(1).ioc());
+        assertTrue(found.get(1).ioc() >= found.get(2).ioc());
+        String[] words = found.get(0).settings().split(" ");
+        assertEquals(6, words.length);
+        assertEquals(PLAIN, convert(spec,
+            new String[] {words[1], words[2], words[3]}, words[4], words[5],
+            cipher));
+    }
+
+    @Test
+    public void scoresText() {
+        IocSearch.Candidate candidate =
+            new IocSearch.Candidate(12, 4, "* B I II AA AA");
+        assertEquals(1.0, candidate.ioc(), 1e-9);
+        assertEquals("1.00000 * B I II AA AA", candidate.toString());
+    }
+
+    @Test
+    public void rejectsBadText() {
+        try {
+            new IocSearch(spec(), "A", 1);
+            fail("one-letter message accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+        try {
+            new IocSearch(spec(), "AB1", 1);
+            fail("character outside the alphabet accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.RecursiveTask;
+
+import enigma.IocSearch.Candidate;
+
+/** A task that runs an IocSearch over a range of its units of work,
+ *  splitting the range in halves until single units remain, and returns
+ *  the best candidates it found.  Unit U covers rotor order U / size
+ *  with its rightmost rotor starting at internal position U % size, and
+ *  every ring setting and starting position of the others.
+ *  @author Connor Bernard
+ */
+class IocTask extends RecursiveTask<PriorityQueue<Candidate>> {
+
+    /** Number of recently used scrambler cores kept by each task. */
+    private static final int CORE_CACHE = 64;
+
+    /** A task running SEARCH over units FROM to TO - 1. */
+    IocTask(IocSearch search, int from, int to) {
+        _search = search;
+        _from = from;
+        _to = to;
+    }
+
+    @Override
+    protected PriorityQueue<Candidate> compute() {
+        if (_to - _from > 1) {
+            int mid = (_from + _to) >>> 1;
+            IocTask right = new IocTask(_search, mid, _to);
+            right.fork();
+            PriorityQueue<Candidate> result =
+                new IocTask(_search, _from, mid).compute();
+            for (Candidate candidate : right.join()) {
+                _search.offer(result, candidate);
+            }
+            return result;
+        }
+        _heap = new PriorityQueue<Candidate>();
+        if (_to > _from) {
+            int size = _search.size();
+            load(_search.orders().get(_from / size));
+            _start[_slots - 1] = _from % size;
+            choose(_slots - 1);
+        }
+        return _heap;
+    }
+
+    /** Prepare to search the rotors named by ORDER. */
+    private void load(String[] order) {
+        int size = _search.size();
+        RotorTables tables = new RotorTables(_search.spec(), order);
+        _order = order;
+        _slots = tables.slots();
+        _forward = tables.forward();
+        _backward = tables.backward();
+        _notch = tables.notch();
+        _rotates = tables.rotates();
+        _start = new int[_slots];
+        _ring = new int[_slots];
+        _current = new int[_slots];
+        _advancing = new boolean[_slots];
+        _counts = new long[size];
+        _leftMoving = _slots - 1;
+        while (_leftMoving > 1 && _rotates[_leftMoving - 1]) {
+            _leftMoving -= 1;
+        }
+        int length = _search.cipher().length;
+        _offsets = new int[length];
+        _rows = new int[length];
+        _middleKeys = new long[length];
+        _cacheKeys = new long[CORE_CACHE];
+        Arrays.fill(_cacheKeys, -1);
+        _cacheCores = new int[CORE_CACHE][size];
+    }
+
+    /** Try every ring setting of slot J, and every starting position
+     *  and ring setting of the slots to its left, with the slots to its
+     *  right as they stand.  The rightmost slot's start is fixed by the
+     *  unit of work. */
+    private void choose(int j) {
+        if (j == 0) {
+            evaluate();
+            return;
+        }
+        int size = _search.size();
+        int last = _slots - 1;
+        if (j == _leftMoving) {
+            schedule();
+        }
+        for (int s = j == last ? _start[j] : 0; s < size; s++) {
+            _start[j] = s;
+            if (_rotates[j] && _rotates[j - 1]) {
+                int pushes = j == last ? _search.cipher().length : pushes(j);
+                boolean idle = false;
+                for (int r = 0; r < size; r++) {
+                    boolean hits = hits(j, pushes, r);
+                    if (hits || !idle) {
+                        idle |= !hits;
+                        _ring[j] = r;
+                        choose(j - 1);
+                    }
+                }
+            } else {
+                _ring[j] = 0;
+                choose(j - 1);
+            }
+            if (j == last) {
+                return;
+            }
+        }
+    }
+
+    /** Return the number of times the rotor in slot J is moved by the
+     *  one to its right while the message is deciphered, given the starts
+     *  and rings of the slots to its right. */
+    private int pushes(int j) {
+        System.arraycopy(_start, 0, _current, 0, _slots);
+        int result = 0;
+        for (int t = _search.cipher().length; t > 0; t--) {
+            if (_notch[j + 1][_current[j + 1] + _ring[j + 1]]) {
+                result += 1;
+            }
+            stepFrom(j + 1);
+        }
+        return result;
+    }
+
+    /** Return true iff the rotor in slot J, starting at _start[J] with
+     *  ring offset RING and moved PUSHES times, would reach a notch. */
+    private boolean hits(int j, int pushes, int ring) {
+        int size = _search.size();
+        int posn = _start[j];
+        for (int k = Math.min(pushes, size - 1); k >= 0; k--) {
+            if (_notch[j][posn + ring]) {
+                return true;
+            }
+            posn = posn + 1 == size ? 0 : posn + 1;
+        }
+        return false;
+    }
+
+    /** Advance the slots of _current from slot FROM rightward by one
+     *  keystroke, as Machine does, and return true iff any slot other
+     *  than the rightmost moved. */
+    private boolean stepFrom(int from) {
+        int size = _search.size();
+        int last = _slots - 1;
+        boolean[] advancing = _advancing;
+        for (int i = last; i >= from; i--) {
+            advancing[i] = false;
+        }
+        for (int i = last; i >= from; i--) {
+            if (_notch[i][_current[i] + _ring[i]] && _rotates[i - 1]) {
+                advancing[i] = true;
+                advancing[i - 1] = true;
+            }
+        }
+        advancing[last] = true;
+        boolean moved = false;
+        for (int i = from; i <= last; i++) {
+            if (advancing[i]) {
+                _current[i] = _current[i] + 1 == size ? 0 : _current[i] + 1;
+                moved |= i < last;
+            }
+        }
+        return moved;
+    }
+
+    /** Fill in _offsets, _rows and _middleKeys for each keystroke of the
+     *  message from the starts and rings of the slots to the right of
+     *  _leftMoving.  The rotors to their left never move them, so these
+     *  serve for every start of the rotors to their left. */
+    private void schedule() {
+        int size = _search.size();
+        int last = _slots - 1;
+        int j = _leftMoving;
+        System.arraycopy(_start, 0, _current, 0, _slots);
+        int offset = 0;
+        for (int t = 0; t < _offsets.length; t++) {
+            if (j == last) {
+                offset += 1;
+            } else {
+                _advancing[j] = false;
+                stepFrom(j + 1);
+                if (_advancing[j]) {
+                    offset += 1;
+                }
+                long key = 0;
+                for (int i = j + 1; i < last; i++) {
+                    key = key * size + _current[i];
+                }
+                _middleKeys[t] = key;
+                _rows[t] = _current[last] * size;
+            }
+            _offsets[t] = offset % size;
+        }
+        _middleScale = 1;
+        for (int i = j + 1; i < last; i++) {
+            _middleScale *= size;
+        }
+    }
+
+    /** Decipher the message from the starts and rings in _start and
+     *  _ring, following the schedule of the moving rotors, and keep the
+     *  result if it scores well enough. */
+    private void evaluate() {
+        int size = _search.size();
+        int last = _slots - 1;
+        int j = _leftMoving;
+        int[] cipher = _search.cipher();
+        int[] fastForward = _forward[last];
+        int[] fastBackward = _backward[last];
+        long[] counts = _counts;
+        Arrays.fill(counts, 0);
+        long fixedKey = 0;
+        for (int i = 1; i < j; i++) {
+            fixedKey = fixedKey * size + _start[i];
+        }
+        int[] core = null;
+        long coreKey = -1;
+        for (int t = 0; t < cipher.length; t++) {
+            int posn = _start[j] + _offsets[t];
+            if (posn >= size) {
+                posn -= size;
+            }
+            int row;
+            long key;
+            if (j == last) {
+                row = posn * size;
+                key = fixedKey;
+            } else {
+                row = _rows[t];
+                key = (fixedKey * size + posn) * _middleScale
+                    + _middleKeys[t];
+            }
+            if (key != coreKey) {
+                core = core(key);
+                coreKey = key;
+            }
+            counts[fastBackward[row + core[fastForward[row + cipher[t]]]]]
+                += 1;
+        }
+        long coincidences = 0;
+        for (long n : counts) {
+            coincidences += n * (n - 1);
+        }
+        if (_search.qualifies(_heap, coincidences)) {
+            _search.offer(_heap, new Candidate(coincidences, cipher.length,
+                    _search.settingsLine(_order, _start, _ring)));
+        }
+    }
+
+    /** Return the combined effect of every rotor but the rightmost, from
+     *  the right side of the second-rightmost rotor through the reflector
+     *  and back, with the settings of slots 1 to the second-rightmost
+     *  given by the digits, base size, of KEY. */
+    private int[] core(long key) {
+        int size = _search.size();
+        long digits = key;
+        for (int i = _slots - 2; i >= 1; i--) {
+            _current[i] = (int) (digits % size);
+            digits /= size;
+        }
+        int slot = (int) (key % CORE_CACHE);
+        int[] result = _cacheCores[slot];
+        if (_cacheKeys[slot] != key) {
+            _cacheKeys[slot] = key;
+            for (int c = 0; c < size; c++) {
+                int x = c;
+                for (int i = _slots - 2; i >= 0; i--) {
+                    x = _forward[i][_current[i] * size + x];
+                }
+                for (int i = 1; i < _slots - 1; i++) {
+                    x = _backward[i][_current[i] * size + x];
+                }
+                result[c] = x;
+            }
+        }
+        return result;
+    }
+
+    /** The search being run. */
+    private final IocSearch _search;
+    /** First unit of work. */
+    private final int _from;
+    /** Unit of work after the last. */
+    private final int _to;
+    /** Best candidates found by this task, lowest first. */
+    private PriorityQueue<Candidate> _heap;
+
+    /** Names of the rotors being searched, by slot. */
+    private String[] _order;
+    /** Number of slots. */
+    private int _slots;
+    /** Each slot's rotor forward, indexed by setting * size + input. */
+    private int[][] _forward;
+    /** Each slot's rotor backward, laid out as _forward. */
+    private int[][] _backward;
+    /** Whether each slot's rotor is at a notch at each setting, over two
+     *  turns. */
+    private boolean[][] _notch;
+    /** Whether each slot's rotor moves. */
+    private boolean[] _rotates;
+    /** Internal starting position of each slot. */
+    private int[] _start;
+    /** Ring offset of each slot. */
+    private int[] _ring;
+    /** Settings of the slots at the current keystroke. */
+    private int[] _current;
+    /** Scratch flags marking the slots that move on a keystroke. */
+    private boolean[] _advancing;
+    /** Number of times each letter occurs in the decryption. */
+    private long[] _counts;
+    /** Leftmost moving slot.  The rotors to its left never move and its
+     *  own notches never matter, so it moves only when pushed. */
+    private int _leftMoving;
+    /** For each keystroke, the number of times, modulo size, that the
+     *  rotor in _leftMoving has moved, counting that keystroke. */
+    private int[] _offsets;
+    /** For each keystroke, the rightmost rotor's setting * size. */
+    private int[] _rows;
+    /** For each keystroke, the settings of the slots between
+     *  _leftMoving and the rightmost, as digits base size. */
+    private long[] _middleKeys;
+    /** Size raised to the number of slots between _leftMoving and the
+     *  rightmost. */
+    private long _middleScale;
+    /** Key of each cached core, or -1. */
+    private long[] _cacheKeys;
+    /** Cached cores, indexed by key modulo CORE_CACHE. */
+    private int[][] _cacheCores;
+}
@@ -1,7 +1,10 @@
 package enigma;
 
 import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /** Class that represents a complete enigma machine.
  *  @author Connor Bernard
@@ -13,130 +16,668 @@ class Machine {
      *  available rotors. */
     Machine(Alphabet alpha, int numRotors, int pawls,
             Collection<Rotor> allRotors) {
-        _alphabet = alpha;
-        _numRotors = numRotors;
-        _pawls = pawls;
-        _allRotors = allRotors;
-        _rotors = new Rotor[numRotors];
-        Object[] rotors = allRotors.toArray();
-        allRotorHM = new HashMap<String, Rotor>();
-        int numMovingRotors = 0;
-        for (Object rotor : rotors) {
-            allRotorHM.put(((Rotor) rotor).name(), (Rotor) rotor);
-        }
+        this(new MachineSpec(alpha, numRotors, pawls, allRotors));
+    }
+
+    /** A new Enigma machine built to SPEC.  The machine keeps only its
+     *  own rotor positions, ring settings and plugboard; it never
+     *  modifies SPEC, which other machines may share. */
+    Machine(MachineSpec spec) {
+        _spec = spec;
+        _alphabet = spec.alphabet();
+        _rotors = new Rotor[spec.numRotors()];
+        _notchTables = new boolean[spec.numRotors()][];
+        _engaged = new long[(spec.numRotors() + 63) >>> 6];
+        _moving = new long[_engaged.length];
+        _ownRotors = new HashMap<String, Rotor>();
+    }
+
+    /** Return the spec I was built to. */
+    MachineSpec spec() {
+        return _spec;
     }
 
     /** Return the number of rotor slots I have. */
     int numRotors() {
-        return _numRotors;
+        return _spec.numRotors();
     }
 
     /** Return the number pawls (and thus rotating rotors) I have. */
     int numPawls() {
-        return _pawls;
+        return _spec.numPawls();
+    }
+
+    /** Return my own copy of the available rotor named NAME, making it
+     *  on first use.  The copy keeps its ring setting between uses. */
+    private Rotor rotor(String name) {
+        Rotor result = _ownRotors.get(name);
+        if (result == null) {
+            Rotor prototype = _spec.rotors().get(name);
+            if (prototype == null) {
+                throw new EnigmaException("No rotor named " + name);
+            }
+            result = prototype.copy();
+            _ownRotors.put(name, result);
+        }
+        return result;
     }
 
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
+        dropKeystream();
+        Rotor fast = _rotors[numRotors() - 1];
         int numMovingRotors = 0;
         for (int i = 0; i < rotors.length; i++) {
-            if (allRotorHM.get(rotors[i]).reflecting() && i != 0) {
+            Rotor rotor = rotor(rotors[i]);
+            if (rotor.reflecting() && i != 0) {
                 throw new EnigmaException("Reflector in wrong place.");
             }
-            if (allRotorHM.get(rotors[i]).rotates()) {
+            if (rotor.rotates()) {
                 numMovingRotors += 1;
             }
-            _rotors[i] = allRotorHM.get(rotors[i]);
+            _rotors[i] = rotor;
         }
-        if (numMovingRotors != _pawls) {
+        if (numMovingRotors != numPawls()) {
             throw new EnigmaException("Wrong number of arguments");
         }
+        _edgesStale |= _rotors[numRotors() - 1] != fast;
+        _stale = true;
+        _notchesStale = true;
+        markOrigin();
     }
 
     /** Set my rotors according to SETTING, which must be a string of
-     *  numRotors()-1 characters in my alphabet. The first letter refers
+     *  numRotors()-1 code points in my alphabet. The first letter refers
      *  to the leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
+        _keystream = null;
+        _keystreamStale = true;
+        int[] symbols = symbols(setting);
         for (int i = 1; i < numRotors(); i++) {
-            _rotors[i].set(setting.charAt(i - 1));
+            _rotors[i].set(_rotors[i].alphabet().toInt(symbols[i - 1]));
+        }
+        _stale = true;
+        _notchesStale = true;
+        markOrigin();
+    }
+
+    /** Record the current rotor settings as position 0 of the stream. */
+    private void markOrigin() {
+        _origin = new int[numRotors()];
+        for (int i = 0; i < numRotors(); i++) {
+            _origin[i] = _rotors[i].setting();
+        }
+        _position = 0;
+    }
+
+    /** Return the number of characters converted since the rotors were
+     *  last set. */
+    long position() {
+        return _position;
+    }
+
+    /** Move my rotors to the positions they would reach after POSITION
+     *  keystrokes from their settings when last set, as if that many
+     *  characters had been converted since.  Takes time that depends on
+     *  the number of rotors (see StepSchedule) rather than on POSITION,
+     *  unless a double stepping rotor has notches at adjacent
+     *  positions. */
+    void seek(long position) {
+        if (position < 0) {
+            throw new EnigmaException("Negative stream position");
         }
+        if (_keystream != null && position >= _keystreamStart) {
+            long n = position - _keystreamStart;
+            if (n >= _keystreamRows) {
+                n = _keystreamTail
+                    + (n - _keystreamTail) % (_keystreamRows - _keystreamTail);
+            }
+            _row = (int) n;
+            _position = position;
+            return;
+        }
+        long current = _keystream != null ? _keystreamStart : _position;
+        _keystream = null;
+        _keystreamStale = true;
+        StepSchedule schedule = new StepSchedule(_rotors, _origin);
+        if (schedule.exact()) {
+            int[] settings = new int[numRotors()];
+            schedule.positions(position, settings);
+            restoreRotors(settings);
+        } else {
+            if (position < current) {
+                restoreRotors(_origin);
+                current = 0;
+            }
+            for (; current < position; current++) {
+                advanceRotors();
+            }
+        }
+        _position = position;
     }
     /** Sets the alphabet to the string passed in.
      * @param alphabets = string of characters representing a new alphabet */
     void setAlphabets(String alphabets) {
+        dropKeystream();
+        int[] symbols = symbols(alphabets);
         for (int i = 1; i < numRotors(); i++) {
-            _rotors[i].rotateAlphabet(alphabets.charAt(i - 1));
+            _rotors[i].rotateAlphabet(symbols[i - 1]);
+        }
+        _notchesStale = true;
+    }
+
+    /** Return the code points of SETTING, a setting of every rotor but
+     *  the reflector. */
+    private int[] symbols(String setting) {
+        int[] result = setting.codePoints().toArray();
+        if (result.length < numRotors() - 1) {
+            throw new EnigmaException("Setting too short");
         }
+        return result;
     }
 
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
+        dropKeystream();
+        _edgesStale |= plugboard != _plugboard;
         _plugboard = plugboard;
+        _stale = true;
+    }
+
+    /** Return my plugboard. */
+    Permutation plugboard() {
+        return _plugboard;
+    }
+
+    /** Return the permutations applied by my rotors and reflector alone,
+     *  without the plugboard, on each of the next LENGTH keystrokes, as
+     *  LENGTH rows of alphabet size entries.  Row T maps each index to
+     *  the one it becomes on keystroke T.  My rotors are left where they
+     *  started. */
+    int[] scramblers(int length) {
+        dropKeystream();
+        int size = _alphabet.size();
+        int[] start = new int[numRotors()];
+        for (int i = 0; i < numRotors(); i++) {
+            start[i] = _rotors[i].setting();
+        }
+        int[] result = new int[length * size];
+        Rotor fast = _rotors[numRotors() - 1];
+        for (int t = 0; t < length; t++) {
+            advanceRotors();
+            if (_stale) {
+                refresh();
+            }
+            for (int c = 0; c < size; c++) {
+                result[t * size + c] =
+                    fast.convertBackward(_inner[fast.convertForward(c)]);
+            }
+        }
+        restoreRotors(start);
+        return result;
     }
 
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
-        c = _plugboard.permute(c);
-        boolean[] notches = new boolean[numRotors()];
-        for (int i = numRotors() - 1; i >= 0; i--) {
-            if (_rotors[i].atNotch() && _rotors[i - 1].rotates()) {
-                notches[i] = true;
-                notches[i - 1] = true;
+        if (c < 0 || c >= _alphabet.size()) {
+            c = _plugboard.wrap(c);
+        }
+        if (_keystreamStale) {
+            buildKeystream();
+        }
+        _position += 1;
+        if (_keystream != null) {
+            int row = _row;
+            _row = row + 1 == _keystreamRows ? _keystreamTail : row + 1;
+            return _keystream[row * _alphabet.size() + c] & 0xFF;
+        }
+        advanceRotors();
+        return convertInPlace(c);
+    }
+
+    /** Returns the result of converting C (an index in the range
+     *  0..alphabet size - 1) with the rotors in their current
+     *  positions, without advancing them. */
+    private int convertInPlace(int c) {
+        if (_stale) {
+            refresh();
+        }
+        Rotor fast = _rotors[numRotors() - 1];
+        if (_entry != null) {
+            int row = fast.setting() * _alphabet.size();
+            return _exit[row + _inner[_entry[row + c]]];
+        }
+        c = fast.convertForward(_plugboard.permute(c));
+        return _plugboard.permute(fast.convertBackward(_inner[c]));
+    }
+
+    /** Precompute the permutations applied on every keystroke from the
+     *  current rotor positions until those positions repeat, limiting
+     *  the table to MAXBYTES bytes.  Once built, each character costs a
+     *  single table load.  The table is rebuilt lazily after the rotors
+     *  or plugboard change.  When the period is too long to fit, or
+     *  MAXBYTES is 0 (the default), the machine steps its rotors as
+     *  usual. */
+    void setKeystreamLimit(int maxBytes) {
+        dropKeystream();
+        _keystreamLimit = maxBytes;
+    }
+
+    /** Try to fill in _keystream from the current rotor positions,
+     *  leaving the rotors where they started.  Leaves _keystream null
+     *  when it is disabled or would exceed _keystreamLimit. */
+    private void buildKeystream() {
+        _keystreamStale = false;
+        _keystream = null;
+        int size = _alphabet.size();
+        if (_keystreamLimit < size || size > KEYSTREAM_SYMBOLS
+                || Math.pow(size, numRotors()) > Long.MAX_VALUE) {
+            return;
+        }
+        int[] start = new int[numRotors()];
+        for (int i = 0; i < numRotors(); i++) {
+            start[i] = _rotors[i].setting();
+        }
+        int maxRows = _keystreamLimit / size;
+        byte[] table = new byte[Math.min(maxRows, INITIAL_ROWS) * size];
+        HashMap<Long, Integer> seen = new HashMap<Long, Integer>();
+        seen.put(positionKey(), 0);
+        int rows = 0;
+        Integer repeat = null;
+        while (repeat == null && rows < maxRows) {
+            advanceRotors();
+            if (table.length < (rows + 1) * size) {
+                table = Arrays.copyOf(table,
+                        Math.min(2 * rows, maxRows) * size);
+            }
+            for (int c = 0; c < size; c++) {
+                table[rows * size + c] = (byte) convertInPlace(c);
             }
+            rows += 1;
+            repeat = seen.putIfAbsent(positionKey(), rows);
+        }
+        restoreRotors(start);
+        if (repeat != null) {
+            _keystream = Arrays.copyOf(table, rows * size);
+            _keystreamRows = rows;
+            _keystreamTail = repeat;
+            _keystreamStart = _position;
+            _row = 0;
         }
-        notches[numRotors() - 1] = true;
+    }
+
+    /** Return the positions of my rotors as a single number. */
+    private long positionKey() {
+        long key = 0;
         for (int i = 0; i < numRotors(); i++) {
-            if (notches[i]) {
-                _rotors[i].advance();
+            key = key * _alphabet.size() + _rotors[i].setting();
+        }
+        return key;
+    }
+
+    /** Set each of my rotors to the corresponding setting in SETTINGS. */
+    private void restoreRotors(int[] settings) {
+        for (int i = 1; i < numRotors(); i++) {
+            _rotors[i].set(settings[i]);
+        }
+        _stale = true;
+        _notchesStale = true;
+    }
+
+    /** Stop using the precomputed keystream, first moving the rotors to
+     *  the positions they would have reached without it. */
+    private void dropKeystream() {
+        if (_keystream != null) {
+            int rows = _row;
+            _keystream = null;
+            for (int i = 0; i < rows; i++) {
+                advanceRotors();
+            }
+        }
+        _keystreamStale = true;
+    }
+
+    /** Rebuild the cached composite of every rotor but the rightmost,
+     *  and the plugboard edge tables if they are out of date. */
+    private void refresh() {
+        int size = _alphabet.size();
+        int last = numRotors() - 1;
+        if (_edgesStale) {
+            if (size > Rotor.TABLE_LIMIT) {
+                _entry = null;
+                _exit = null;
+            } else {
+                Rotor fast = _rotors[last];
+                if (_entry == null || _entry.length != size * size) {
+                    _entry = new int[size * size];
+                    _exit = new int[size * size];
+                }
+                for (int k = 0; k < size; k++) {
+                    for (int c = 0; c < size; c++) {
+                        _entry[k * size + c] =
+                            fast.convertForward(_plugboard.permute(c), k);
+                        _exit[k * size + c] =
+                            _plugboard.permute(fast.convertBackward(c, k));
+                    }
+                }
             }
+            _edgesStale = false;
         }
-        for (int i = numRotors() - 1; i >= 0; i--) {
-            c = _rotors[i].convertForward(c);
+        if (_inner == null || _inner.length != size) {
+            _inner = new int[size];
+        }
+        for (int c = 0; c < size; c++) {
+            int x = c;
+            for (int i = last - 1; i >= 0; i--) {
+                x = _rotors[i].convertForward(x);
+            }
+            for (int i = 1; i < last; i++) {
+                x = _rotors[i].convertBackward(x);
+            }
+            _inner[c] = x;
+        }
+        _stale = false;
+    }
+
+    /** Advance every rotor whose pawl engages, as for one keystroke: the
+     *  rightmost, and each rotor at a notch together with the rotor to
+     *  its left, if that one moves.  Like the carries of an odometer,
+     *  only the rotors that move are touched, and the rotors at a notch
+     *  are kept as a set of bits, so a keystroke costs time proportional
+     *  to the number of rotors that move rather than to the number of
+     *  slots. */
+    private void advanceRotors() {
+        if (_notchesStale) {
+            findNotches();
+        }
+        long[] engaged = _engaged;
+        long[] moving = _moving;
+        int words = engaged.length;
+        for (int w = 0; w < words; w++) {
+            long next = w + 1 < words ? engaged[w + 1] : 0;
+            moving[w] = engaged[w] | engaged[w] >>> 1 | next << 63;
+        }
+        int last = numRotors() - 1;
+        moving[last >>> 6] |= 1L << last;
+        for (int w = 0; w < words; w++) {
+            for (long bits = moving[w]; bits != 0; bits &= bits - 1) {
+                advanceRotor(w << 6 | Long.numberOfTrailingZeros(bits));
+            }
         }
+    }
+
+    /** Advance the rotor in slot I, updating its bit in _engaged. */
+    private void advanceRotor(int i) {
+        Rotor rotor = _rotors[i];
+        rotor.advance();
+        if (i < numRotors() - 1 && rotor.rotates()) {
+            _stale = true;
+        }
+        boolean[] notches = _notchTables[i];
+        if (notches != null) {
+            if (notches[rotor.setting()]) {
+                _engaged[i >>> 6] |= 1L << i;
+            } else {
+                _engaged[i >>> 6] &= ~(1L << i);
+            }
+        }
+    }
+
+    /** Fill in _notchTables and _engaged for my current rotors. */
+    private void findNotches() {
+        Arrays.fill(_engaged, 0);
         for (int i = 1; i < numRotors(); i++) {
-            c = _rotors[i].convertBackward(c);
+            boolean[] notches = null;
+            if (_rotors[i - 1].rotates()) {
+                notches = _rotors[i].notchTable();
+            }
+            _notchTables[i] = notches;
+            if (notches != null && notches[_rotors[i].setting()]) {
+                _engaged[i >>> 6] |= 1L << i;
+            }
+        }
+        _notchesStale = false;
+    }
+
+    /** Convert the LEN character indices of IN starting at OFF, placing
+     *  the results in OUT starting at OUTOFF and updating the state of
+     *  the rotors accordingly. IN and OUT may be the same array. */
+    void convert(int[] in, int off, int len, int[] out, int outOff) {
+        Telemetry.RotorSteps event = beginSteps();
+        long from = _position;
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = convert(in[off + i]);
+        }
+        Telemetry.addCharacters(len);
+        if (event != null) {
+            reportSteps(event, from);
+        }
+    }
+
+    /** Convert the LEN characters of IN starting at OFF, placing the
+     *  results in OUT starting at OUTOFF and updating the state of the
+     *  rotors accordingly. IN and OUT may be the same array. */
+    void convert(char[] in, int off, int len, char[] out, int outOff) {
+        Telemetry.RotorSteps event = beginSteps();
+        long from = _position;
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = _alphabet.toChar(convert(
+                    _alphabet.toInt(in[off + i])));
+        }
+        Telemetry.addCharacters(len);
+        if (event != null) {
+            reportSteps(event, from);
+        }
+    }
+
+    /** Convert the LEN bytes of IN starting at OFF, each a symbol of my
+     *  alphabet as encoded by BYTES, placing the results in OUT starting
+     *  at OUTOFF, encoded the same way, and updating the state of the
+     *  rotors accordingly.  A byte that is not a symbol converts as a
+     *  character outside my alphabet would.  IN and OUT may be the same
+     *  array. */
+    void convert(byte[] in, int off, int len, byte[] out, int outOff,
+                 ByteAlphabet bytes) {
+        Telemetry.RotorSteps event = beginSteps();
+        long from = _position;
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = bytes.toByte(convert(
+                    bytes.toInt(in[off + i] & 0xFF)));
+        }
+        Telemetry.addCharacters(len);
+        if (event != null) {
+            reportSteps(event, from);
         }
-        c = _plugboard.permute(c);
-        return c;
     }
+
+    /** Return a begun event for the rotor movement of a bulk conversion,
+     *  or null when Flight Recorder is not running or no recording has
+     *  the event enabled. */
+    private static Telemetry.RotorSteps beginSteps() {
+        if (!Telemetry.recording()) {
+            return null;
+        }
+        Telemetry.RotorSteps event = new Telemetry.RotorSteps();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /** Fill in and commit EVENT for the keystrokes from position FROM
+     *  to my current position, unless a recording's threshold rejects
+     *  it.  The moves of each rotor are computed rather than counted, so
+     *  conversion itself is not slowed. */
+    private void reportSteps(Telemetry.RotorSteps event, long from) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.keystrokes = _position - from;
+        event.steps = "";
+        event.total = -1;
+        StepSchedule schedule = new StepSchedule(_rotors, _origin);
+        if (schedule.exact()) {
+            StringBuilder steps = new StringBuilder();
+            event.total = 0;
+            for (int i = 0; i < numRotors(); i++) {
+                long moves = schedule.moves(i, from, _position);
+                steps.append(i == 0 ? "" : " ").append(moves);
+                event.total += moves;
+            }
+            event.steps = steps.toString();
+        }
+        event.commit();
+    }
+
+    /** Convert the LEN characters of IN starting at OFF into OUT starting
+     *  at OUTOFF, exactly as convert(IN, OFF, LEN, OUT, OUTOFF) would, but
+     *  splitting the work among the threads of the common ForkJoinPool.
+     *  Each piece is converted by a copy of me moved to that piece's
+     *  position with seek.  IN and OUT may be the same array, but the
+     *  two ranges must otherwise not overlap.  When the rotors cannot be
+     *  moved directly to a position (see StepSchedule), each copy would
+     *  have to step there one keystroke at a time, so the conversion is
+     *  done sequentially instead. */
+    void convertParallel(char[] in, int off, int len, char[] out,
+                         int outOff) {
+        if (!new StepSchedule(_rotors, _origin).exact()) {
+            convert(in, off, len, out, outOff);
+            return;
+        }
+        long start = _position;
+        ForkJoinPool.commonPool().invoke(
+            new ParallelConverter(this, start, in, off, len, out, outOff));
+        seek(start + len);
+    }
+
+    /** Return a machine with my alphabet, rotors and plugboard, at
+     *  position 0 of my current stream, whose rotors are copies of mine
+     *  that may be moved independently. */
+    Machine copy() {
+        Machine result = _spec.newMachine();
+        String[] names = new String[numRotors()];
+        for (int i = 0; i < numRotors(); i++) {
+            names[i] = _rotors[i].name();
+            result._ownRotors.put(names[i], _rotors[i].copy());
+        }
+        result.insertRotors(names);
+        result.restoreRotors(_origin);
+        result.markOrigin();
+        result.setPlugboard(_plugboard);
+        return result;
+    }
+
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        String converted = "";
-        for (int i = 0; i < msg.length(); i++) {
-            converted += _alphabet.toChar(convert(
-                    _alphabet.toInt(msg.charAt(i))));
+        if (!_alphabet.bmp()) {
+            int[] converted = msg.codePoints().toArray();
+            convertCodePoints(converted, 0, converted.length);
+            return new String(converted, 0, converted.length);
+        }
+        char[] converted = msg.toCharArray();
+        convert(converted, 0, converted.length, converted, 0);
+        return new String(converted);
+    }
+
+    /** Convert in place the LEN code points of TEXT starting at OFF,
+     *  updating the state of the rotors accordingly.  Code points that
+     *  are not in my alphabet convert as their index, -1, would. */
+    void convertCodePoints(int[] text, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            text[i] = _alphabet.toInt(text[i]);
+        }
+        convert(text, off, len, text, off);
+        for (int i = off; i < off + len; i++) {
+            text[i] = _alphabet.toCodePoint(text[i]);
         }
-        return converted;
     }
     /** Getter method for allRotorsHM.
-     * @return hashmap of all rotors
+     * @return map of all available rotors, which must not be moved
      **/
-    public HashMap<String, Rotor> getAllRotorHM() {
-        return allRotorHM;
+    public Map<String, Rotor> getAllRotorHM() {
+        return _spec.rotors();
     }
     /** Getter method for rotors.
      * @return array of rotors being used
      **/
     public Rotor[] getRotors() {
+        dropKeystream();
+        _notchesStale = true;
         return _rotors;
     }
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
-    /** number of rotors. **/
-    private int _numRotors;
-    /** number of pawls. **/
-    private int _pawls;
-    /** Collection of all rotors. **/
-    private Collection<Rotor> _allRotors;
-    /** Mapping of each rotor name to the rotor itself. **/
-    private HashMap<String, Rotor> allRotorHM;
+    /** The fixed description of this machine. **/
+    private final MachineSpec _spec;
+    /** My copies of the rotors of _spec that I have used, by name. **/
+    private final HashMap<String, Rotor> _ownRotors;
     /** Array of all rotors. **/
     private Rotor[] _rotors;
     /** Permutation of plugboard to run through before and after. **/
     private Permutation _plugboard;
+    /** Rotor settings when the rotors were last set. **/
+    private int[] _origin;
+    /** Number of characters converted since the rotors were last set. **/
+    private long _position;
+    /** For each slot, the notch table of its rotor if the rotor to its
+     *  left moves, and otherwise null. **/
+    private boolean[][] _notchTables;
+    /** Bit I % 64 of word I / 64 is set iff the rotor in slot I is at a
+     *  notch that engages the pawl of the rotor to its left. **/
+    private long[] _engaged;
+    /** Scratch bits marking the rotors that move on the current
+     *  keystroke, laid out as _engaged. **/
+    private long[] _moving;
+    /** True when a rotor has been replaced, set or rotated other than by
+     *  advanceRotors since _notchTables and _engaged were built. **/
+    private boolean _notchesStale = true;
+    /** The combined effect of every rotor but the rightmost, from the
+     *  right side of the second-rightmost rotor through the reflector
+     *  and back. Only valid while _stale is false. **/
+    private int[] _inner;
+    /** The plugboard followed by the rightmost rotor, indexed by that
+     *  rotor's setting * alphabet size + input, or null for alphabets
+     *  too large to tabulate. **/
+    private int[] _entry;
+    /** The rightmost rotor in reverse followed by the plugboard, laid
+     *  out as _entry. **/
+    private int[] _exit;
+    /** True when a rotor other than the rightmost has moved or been
+     *  replaced since _inner was built. **/
+    private boolean _stale = true;
+    /** True when the plugboard or rightmost rotor has been replaced
+     *  since _entry and _exit were built.  Reinstalling the same
+     *  Permutation or rotor leaves them valid. **/
+    private boolean _edgesStale = true;
+
+    /** Largest alphabet whose indices fit in the bytes of _keystream. **/
+    private static final int KEYSTREAM_SYMBOLS = 256;
+    /** Rows allocated for _keystream before it first grows. **/
+    private static final int INITIAL_ROWS = 1024;
+    /** Most bytes _keystream may occupy, or 0 to never build it. **/
+    private int _keystreamLimit;
+    /** Converted index of each input index, one row of alphabet size
+     *  entries per keystroke, or null when the rotors step normally.
+     *  While in use, the rotors stay at the positions they had before
+     *  the first row. **/
+    private byte[] _keystream;
+    /** Number of rows in _keystream. **/
+    private int _keystreamRows;
+    /** The row that follows the last row of _keystream; rows before it
+     *  are only reached once, from positions the rotors cannot return
+     *  to. **/
+    private int _keystreamTail;
+    /** The value of _position when _keystream was built. **/
+    private long _keystreamStart;
+    /** The row of _keystream for the next keystroke. **/
+    private int _row;
+    /** True when _keystream must be rebuilt before the next keystroke. **/
+    private boolean _keystreamStale = true;
 }
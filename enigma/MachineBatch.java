@@ -0,0 +1,313 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** A batch of independent machine states, its lanes, with a common
+ *  rotor order, that are stepped and converted in lockstep: each
+ *  keystroke steps every lane and then converts one character for every
+ *  lane.  Each lane has its own rotor positions, ring settings and
+ *  plugboard, and converts exactly as the Machine it was taken from
+ *  would.
+ *
+ *  The state is kept slot by slot, with one entry per lane, and the
+ *  rotors' wiring in a single table per slot from RotorTables, so the
+ *  work on a keystroke is the same short sequence of loads, adds and
+ *  comparisons for every lane.  Lanes are processed WIDTH at a time in
+ *  loops of fixed length over those arrays, independent lookups that
+ *  the processor can overlap, rather than one long chain of dependent
+ *  lookups per message.  The lanes left over when the number of lanes
+ *  is not a multiple of WIDTH go through a scalar path, one lane at a
+ *  time, that computes the same results.
+ *
+ *  Texts of several lanes are interleaved keystroke by keystroke:
+ *  character T of lane L is at index T * lanes() + L.
+ *  @author Connor Bernard
+ */
+class MachineBatch {
+
+    /** Number of lanes processed together. */
+    static final int WIDTH = 8;
+
+    /** A batch with one lane for each of MACHINES, which must share a
+     *  spec and rotor order, starting from their current rotor
+     *  positions, ring settings and plugboards.  MACHINES are left as
+     *  they were. */
+    MachineBatch(Machine[] machines) {
+        if (machines.length == 0) {
+            throw error("no machines to batch");
+        }
+        MachineSpec spec = machines[0].spec();
+        _alphabet = spec.alphabet();
+        _size = _alphabet.size();
+        if (_size > Rotor.TABLE_LIMIT) {
+            throw error("alphabet too large to batch");
+        }
+        _lanes = machines.length;
+        _slots = spec.numRotors();
+        Rotor[] first = machines[0].getRotors();
+        String[] order = new String[_slots];
+        for (int i = 0; i < _slots; i++) {
+            order[i] = first[i].name();
+        }
+        RotorTables tables = new RotorTables(spec, order);
+        _forward = tables.forward();
+        _backward = tables.backward();
+        _rotates = tables.rotates();
+        _notch = new boolean[_slots][];
+        for (int i = 1; i < _slots; i++) {
+            if (_rotates[i - 1]) {
+                _notch[i] = tables.notch()[i];
+            }
+        }
+        _pos = new int[_slots][_lanes];
+        _ring = new int[_slots][_lanes];
+        _plugs = new int[_lanes * _size];
+        for (int lane = 0; lane < _lanes; lane++) {
+            load(lane, machines[lane], spec, order);
+        }
+    }
+
+    /** Copy the state of MACHINE, which must be built to SPEC with rotors
+     *  named ORDER, into lane LANE. */
+    private void load(int lane, Machine machine, MachineSpec spec,
+                      String[] order) {
+        if (machine.spec() != spec) {
+            throw error("machines of a batch must share a spec");
+        }
+        Rotor[] rotors = machine.getRotors();
+        for (int i = 0; i < _slots; i++) {
+            if (!rotors[i].name().equals(order[i])) {
+                throw error("machines of a batch must share a rotor order");
+            }
+            Alphabet base = spec.rotors().get(order[i]).alphabet();
+            _pos[i][lane] = rotors[i].setting();
+            _ring[i][lane] = base.toInt(rotors[i].alphabet().toCodePoint(0));
+        }
+        Permutation plugboard = machine.plugboard();
+        for (int c = 0; c < _size; c++) {
+            _plugs[lane * _size + c] =
+                plugboard == null ? c : plugboard.permute(c);
+        }
+    }
+
+    /** Return the number of lanes. */
+    int lanes() {
+        return _lanes;
+    }
+
+    /** Convert the interleaved texts of every lane in IN, whose length
+     *  must be a multiple of lanes(), placing the results in OUT, laid
+     *  out the same way.  IN and OUT may be the same array. */
+    void convert(int[] in, int[] out) {
+        if (in.length % _lanes != 0 || out.length < in.length) {
+            throw error("texts do not fill every lane");
+        }
+        for (int t = 0; t < in.length; t += _lanes) {
+            keystroke(in, t, 1, out, t);
+        }
+    }
+
+    /** Convert the LEN indices of TEXT starting at OFF in every lane,
+     *  placing the interleaved results in OUT. */
+    void convertAll(int[] text, int off, int len, int[] out) {
+        if (out.length < len * _lanes) {
+            throw error("no room for the converted texts");
+        }
+        for (int t = 0; t < len; t += 1) {
+            keystroke(text, off + t, 0, out, t * _lanes);
+        }
+    }
+
+    /** Return the conversions of MESSAGES, one per lane, which must all
+     *  have the same length. */
+    String[] convert(String[] messages) {
+        if (messages.length != _lanes) {
+            throw error("need one message per lane");
+        }
+        int len = messages[0].codePointCount(0, messages[0].length());
+        int[] text = new int[len * _lanes];
+        for (int lane = 0; lane < _lanes; lane++) {
+            int[] symbols = messages[lane].codePoints().toArray();
+            if (symbols.length != len) {
+                throw error("messages of a batch must have the same length");
+            }
+            for (int t = 0; t < len; t++) {
+                text[t * _lanes + lane] = index(symbols[t]);
+            }
+        }
+        convert(text, text);
+        return strings(text, len);
+    }
+
+    /** Return the conversions of MESSAGE in every lane. */
+    String[] convertAll(String message) {
+        int[] text = message.codePoints().toArray();
+        for (int t = 0; t < text.length; t++) {
+            text[t] = index(text[t]);
+        }
+        int[] out = new int[text.length * _lanes];
+        convertAll(text, 0, text.length, out);
+        return strings(out, text.length);
+    }
+
+    /** Return the index of code point CH in my alphabet. */
+    private int index(int ch) {
+        int c = _alphabet.toInt(ch);
+        if (c < 0) {
+            throw error("character %c not in alphabet", ch);
+        }
+        return c;
+    }
+
+    /** Return the LEN-character texts of each lane interleaved in
+     *  TEXT. */
+    private String[] strings(int[] text, int len) {
+        String[] result = new String[_lanes];
+        int[] symbols = new int[len];
+        for (int lane = 0; lane < _lanes; lane++) {
+            for (int t = 0; t < len; t++) {
+                symbols[t] = _alphabet.toCodePoint(text[t * _lanes + lane]);
+            }
+            result[lane] = new String(symbols, 0, len);
+        }
+        return result;
+    }
+
+    /** Step every lane for one keystroke and convert its input, lane L
+     *  reading IN[INOFF + L * INSTEP] and writing OUT[OUTOFF + L]. */
+    private void keystroke(int[] in, int inOff, int inStep, int[] out,
+                           int outOff) {
+        int blocks = _lanes - _lanes % WIDTH;
+        for (int base = 0; base < blocks; base += WIDTH) {
+            stepBlock(base);
+            convertBlock(base, in, inOff + base * inStep, inStep, out,
+                         outOff + base);
+        }
+        for (int lane = blocks; lane < _lanes; lane++) {
+            stepLane(lane);
+            out[outOff + lane] = convertLane(lane,
+                                             in[inOff + lane * inStep]);
+        }
+    }
+
+    /** Step lanes BASE to BASE + WIDTH - 1 as Machine.advanceRotors
+     *  would: from the right, each moving rotor advances if it is the
+     *  rightmost, if it is at a notch and its left neighbour moves, or
+     *  if its right neighbour moves and was at a notch. */
+    private void stepBlock(int base) {
+        int size = _size;
+        int[] carry = _carry;
+        for (int k = 0; k < WIDTH; k++) {
+            carry[k] = 1;
+        }
+        for (int i = _slots - 1; i >= 0; i--) {
+            if (!_rotates[i]) {
+                for (int k = 0; k < WIDTH; k++) {
+                    carry[k] = 0;
+                }
+                continue;
+            }
+            int[] pos = _pos[i];
+            boolean[] notch = _notch[i];
+            int[] ring = _ring[i];
+            for (int k = 0; k < WIDTH; k++) {
+                int p = pos[base + k];
+                int engaged =
+                    notch != null && notch[p + ring[base + k]] ? 1 : 0;
+                p += carry[k] | engaged;
+                pos[base + k] = p == size ? 0 : p;
+                carry[k] = engaged;
+            }
+        }
+    }
+
+    /** Convert, in lanes BASE to BASE + WIDTH - 1, the inputs IN[INOFF],
+     *  IN[INOFF + INSTEP], ..., placing the results in OUT from
+     *  OUTOFF. */
+    private void convertBlock(int base, int[] in, int inOff, int inStep,
+                              int[] out, int outOff) {
+        int size = _size;
+        int[] c = _chars;
+        int[] plugs = _plugs;
+        for (int k = 0; k < WIDTH; k++) {
+            c[k] = plugs[(base + k) * size + in[inOff + k * inStep]];
+        }
+        for (int i = _slots - 1; i >= 0; i--) {
+            int[] table = _forward[i];
+            int[] pos = _pos[i];
+            for (int k = 0; k < WIDTH; k++) {
+                c[k] = table[pos[base + k] * size + c[k]];
+            }
+        }
+        for (int i = 1; i < _slots; i++) {
+            int[] table = _backward[i];
+            int[] pos = _pos[i];
+            for (int k = 0; k < WIDTH; k++) {
+                c[k] = table[pos[base + k] * size + c[k]];
+            }
+        }
+        for (int k = 0; k < WIDTH; k++) {
+            out[outOff + k] = plugs[(base + k) * size + c[k]];
+        }
+    }
+
+    /** Step lane LANE alone, as stepBlock steps a block. */
+    private void stepLane(int lane) {
+        boolean carry = true;
+        for (int i = _slots - 1; i >= 0; i--) {
+            if (!_rotates[i]) {
+                carry = false;
+                continue;
+            }
+            int p = _pos[i][lane];
+            boolean engaged =
+                _notch[i] != null && _notch[i][p + _ring[i][lane]];
+            if (carry || engaged) {
+                _pos[i][lane] = p + 1 == _size ? 0 : p + 1;
+            }
+            carry = engaged;
+        }
+    }
+
+    /** Return the conversion of C in lane LANE alone, as convertBlock
+     *  converts a block. */
+    private int convertLane(int lane, int c) {
+        c = _plugs[lane * _size + c];
+        for (int i = _slots - 1; i >= 0; i--) {
+            c = _forward[i][_pos[i][lane] * _size + c];
+        }
+        for (int i = 1; i < _slots; i++) {
+            c = _backward[i][_pos[i][lane] * _size + c];
+        }
+        return _plugs[lane * _size + c];
+    }
+
+    /** The alphabet of the machines. */
+    private final Alphabet _alphabet;
+    /** Size of the alphabet. */
+    private final int _size;
+    /** Number of lanes. */
+    private final int _lanes;
+    /** Number of slots. */
+    private final int _slots;
+    /** Each slot's rotor forward, by setting * _size + input. */
+    private final int[][] _forward;
+    /** Each slot's rotor backward, laid out as _forward. */
+    private final int[][] _backward;
+    /** Whether each slot's rotor moves. */
+    private final boolean[] _rotates;
+    /** For each slot whose left neighbour moves, whether its rotor is at
+     *  a notch at each setting plus ring offset; otherwise null. */
+    private final boolean[][] _notch;
+    /** Setting of each slot's rotor in each lane. */
+    private final int[][] _pos;
+    /** Ring offset of each slot's rotor in each lane: the index in its
+     *  unrotated alphabet of the first letter of its alphabet. */
+    private final int[][] _ring;
+    /** Plugboard of each lane, by lane * _size + input. */
+    private final int[] _plugs;
+    /** Per-lane carries of stepBlock. */
+    private final int[] _carry = new int[WIDTH];
+    /** Per-lane characters of convertBlock. */
+    private final int[] _chars = new int[WIDTH];
+}
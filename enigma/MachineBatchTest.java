@@ -0,0 +1,124 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the MachineBatch class.
+ *  @author Connor Bernard
+ */
+public class MachineBatchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Number of lanes batched: a whole block and some left over. */
+    private static final int LANES = MachineBatch.WIDTH + 3;
+
+    /** The spec of the machines: the naval rotors I to V, Beta and
+     *  reflector B in five slots with three pawls. */
+    private static final MachineSpec SPEC;
+    static {
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        String[] names = {"I", "II", "III", "IV", "V"};
+        String[] notches = {"Q", "E", "V", "J", "Z"};
+        for (int i = 0; i < names.length; i++) {
+            rotors.add(new MovingRotor(names[i],
+                new Permutation(NAVALA.get(names[i]), UPPER), notches[i]));
+        }
+        rotors.add(new FixedRotor("Beta",
+                new Permutation(NAVALA.get("Beta"), UPPER)));
+        rotors.add(new Reflector("B",
+                new Permutation(NAVALA.get("B"), UPPER)));
+        SPEC = new MachineSpec(UPPER, 5, 3, rotors);
+    }
+
+    /** Return machines for LANES lanes, lane L with settings drawn from
+     *  a Random seeded with L. */
+    private Machine[] machines() {
+        Machine[] result = new Machine[LANES];
+        for (int lane = 0; lane < LANES; lane++) {
+            Random random = new Random(lane);
+            String letters = UPPER_STRING;
+            Machine machine = SPEC.newMachine();
+            machine.insertRotors(new String[] {"B", "Beta", "III", "IV",
+                                               "I"});
+            StringBuilder rings = new StringBuilder();
+            StringBuilder setting = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                rings.append(letters.charAt(random.nextInt(26)));
+                setting.append(letters.charAt(random.nextInt(26)));
+            }
+            machine.setAlphabets(rings.toString());
+            machine.setRotors(setting.toString());
+            StringBuilder plugs = new StringBuilder();
+            for (int k = 0; k < 2 * (lane % 4); k += 2) {
+                plugs.append("(").append(letters.charAt(2 * lane + k))
+                    .append(letters.charAt(25 - 2 * lane - k)).append(") ");
+            }
+            machine.setPlugboard(new Permutation(plugs.toString(), UPPER));
+            result[lane] = machine;
+        }
+        return result;
+    }
+
+    /** Return a text of LEN letters drawn from a Random seeded with
+     *  SEED. */
+    private String text(int len, long seed) {
+        Random random = new Random(seed);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < len; i++) {
+            result.append(UPPER_STRING.charAt(random.nextInt(26)));
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void convertsLikeMachines() {
+        String[] messages = new String[LANES];
+        for (int lane = 0; lane < LANES; lane++) {
+            messages[lane] = text(2000, lane);
+        }
+        String[] converted = new MachineBatch(machines()).convert(messages);
+        Machine[] machines = machines();
+        for (int lane = 0; lane < LANES; lane++) {
+            assertEquals(msg("lane", "lane %d", lane),
+                         machines[lane].convert(messages[lane]),
+                         converted[lane]);
+        }
+    }
+
+    @Test
+    public void convertsOneTextInEveryLane() {
+        String message = text(2000, -1);
+        Machine[] machines = machines();
+        MachineBatch batch = new MachineBatch(machines);
+        String[] first = batch.convertAll(message.substring(0, 700));
+        String[] rest = batch.convertAll(message.substring(700));
+        for (int lane = 0; lane < LANES; lane++) {
+            assertEquals(msg("lane", "lane %d", lane),
+                         machines[lane].convert(message),
+                         first[lane] + rest[lane]);
+        }
+    }
+
+    @Test
+    public void rejectsMixedRotorOrders() {
+        Machine[] machines = machines();
+        machines[1].insertRotors(new String[] {"B", "Beta", "III", "IV",
+                                               "II"});
+        try {
+            new MachineBatch(machines);
+            fail("different rotor orders accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The fixed description of an enigma machine: its alphabet, number of
+ *  slots and pawls, and the rotors available to it.  A spec is never
+ *  modified once built, so any number of threads may share one, each
+ *  encrypting with its own Machine from newMachine().  The rotors held
+ *  here serve only as prototypes; machines move copies of them that
+ *  share their wiring.
+ *  @author Connor Bernard
+ */
+class MachineSpec {
+
+    /** A spec for machines with alphabet ALPHA, 1 < NUMROTORS rotor
+     *  slots, and 0 <= PAWLS < NUMROTORS pawls.  ALLROTORS contains all
+     *  the available rotors. */
+    MachineSpec(Alphabet alpha, int numRotors, int pawls,
+                Collection<Rotor> allRotors) {
+        _alphabet = alpha;
+        _numRotors = numRotors;
+        _pawls = pawls;
+        HashMap<String, Rotor> rotors = new HashMap<String, Rotor>();
+        for (Rotor rotor : allRotors) {
+            rotors.put(rotor.name(), rotor.copy());
+        }
+        _rotors = Collections.unmodifiableMap(rotors);
+    }
+
+    /** Return a new machine built to this spec, with no rotors inserted
+     *  yet. */
+    Machine newMachine() {
+        return new Machine(this);
+    }
+
+    /** Return the common alphabet of my rotors. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls. */
+    int numPawls() {
+        return _pawls;
+    }
+
+    /** Return the available rotors, keyed by name.  These must not be
+     *  moved; use Rotor.copy() to get one that may be. */
+    Map<String, Rotor> rotors() {
+        return _rotors;
+    }
+
+    /** Return every admissible arrangement of my rotors, as the names to
+     *  give Machine.insertRotors: a reflector in the first slot,
+     *  non-moving rotors in the slots up to the pawls and moving rotors
+     *  under the pawls. */
+    List<String[]> rotorOrders() {
+        ArrayList<String> reflectors = new ArrayList<String>();
+        ArrayList<String> fixed = new ArrayList<String>();
+        ArrayList<String> moving = new ArrayList<String>();
+        for (Rotor rotor : _rotors.values()) {
+            if (rotor.reflecting()) {
+                reflectors.add(rotor.name());
+            } else if (rotor.rotates()) {
+                moving.add(rotor.name());
+            } else {
+                fixed.add(rotor.name());
+            }
+        }
+        Collections.sort(reflectors);
+        Collections.sort(fixed);
+        Collections.sort(moving);
+        ArrayList<String[]> result = new ArrayList<String[]>();
+        for (String reflector : reflectors) {
+            String[] order = new String[_numRotors];
+            order[0] = reflector;
+            arrange(order, 1, _numRotors - _pawls, fixed, result);
+        }
+        ArrayList<String[]> orders = new ArrayList<String[]>();
+        for (String[] order : result) {
+            arrange(order, _numRotors - _pawls, _numRotors, moving, orders);
+        }
+        return orders;
+    }
+
+    /** Add to RESULT a copy of ORDER for each way of filling its slots
+     *  FROM to TO - 1 with distinct names from NAMES. */
+    private static void arrange(String[] order, int from, int to,
+                                List<String> names, List<String[]> result) {
+        if (from == to) {
+            result.add(order.clone());
+            return;
+        }
+        for (String name : names) {
+            if (!Arrays.asList(order).subList(0, from).contains(name)) {
+                order[from] = name;
+                arrange(order, from + 1, to, names, result);
+            }
+        }
+    }
+
+    /** Common alphabet of my rotors. */
+    private final Alphabet _alphabet;
+    /** Number of rotor slots. */
+    private final int _numRotors;
+    /** Number of pawls. */
+    private final int _pawls;
+    /** Prototype of each available rotor, keyed by name. */
+    private final Map<String, Rotor> _rotors;
+}
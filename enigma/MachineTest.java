@@ -109,4 +109,261 @@ public class MachineTest {
         enigma.setRotors("AAAA");
         assertEquals("", enigma.convert(""));
     }
+    @Test
+    public void convertBulkTest() {
+        Machine enigma = enigmaGen();
+        enigma.setRotors("AXLE");
+        enigma.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                alphabet));
+        char[] out = new char[6];
+        enigma.convert("xFROMx".toCharArray(), 1, 4, out, 2);
+        assertEquals("QVPQ", new String(out, 2, 4));
+        enigma.setRotors("AXLE");
+        int[] msg = {16, 21, 15, 16};
+        enigma.convert(msg, 0, msg.length, msg, 0);
+        assertArrayEquals(new int[] {5, 17, 14, 12}, msg);
+    }
+    @Test
+    public void keystreamTest() {
+        Machine plain = enigmaGen();
+        Machine fast = enigmaGen();
+        fast.setKeystreamLimit(1 << 20);
+        for (Machine enigma : new Machine[] {plain, fast}) {
+            enigma.setRotors("AXLE");
+            enigma.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                    alphabet));
+        }
+        for (int i = 0; i < 40000; i += 1) {
+            assertEquals(plain.convert(i % 26), fast.convert(i % 26));
+        }
+        for (int i = 1; i < 5; i += 1) {
+            assertEquals(plain.getRotors()[i].setting(),
+                    fast.getRotors()[i].setting());
+        }
+        assertEquals(plain.convert("HIAWATHA"), fast.convert("HIAWATHA"));
+        for (long t : new long[] {40008, 123, 1000000}) {
+            plain.seek(t);
+            fast.seek(t);
+            assertEquals(plain.convert("HIAWATHA"), fast.convert("HIAWATHA"));
+        }
+    }
+    @Test
+    public void seekTest() {
+        Machine enigma = enigmaGen();
+        enigma.setRotors("AXLE");
+        enigma.setPlugboard(new Permutation("", alphabet));
+        int[][] settings = new int[20000][5];
+        for (int t = 0; t < settings.length; t += 1) {
+            for (int i = 0; i < 5; i += 1) {
+                settings[t][i] = enigma.getRotors()[i].setting();
+            }
+            enigma.convert(0);
+        }
+        for (int t : new int[] {0, 1, 17, 650, 651, 16899, 16900, 19999, 5}) {
+            enigma.seek(t);
+            assertEquals(t, enigma.position());
+            for (int i = 0; i < 5; i += 1) {
+                assertEquals("slot " + i + " at " + t, settings[t][i],
+                        enigma.getRotors()[i].setting());
+            }
+        }
+        enigma.seek(100);
+        String rest = enigma.convert("HIAWATHA");
+        enigma.setRotors("AXLE");
+        enigma.convert(new String(new char[100]).replace('\0', 'A'));
+        assertEquals(rest, enigma.convert("HIAWATHA"));
+    }
+    @Test
+    public void wideSteppingTest() {
+        int slots = 70;
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        String[] names = new String[slots];
+        names[0] = "B";
+        rotors.add(allRotors().get(10));
+        for (int i = 1; i < slots; i += 1) {
+            names[i] = "W" + i;
+            String notches = "" + (char) ('A' + i % 26)
+                + (char) ('A' + (i * 7) % 26);
+            rotors.add(new MovingRotor(names[i],
+                    new Permutation("", alphabet), notches));
+        }
+        Machine enigma = new Machine(alphabet, slots, slots - 1, rotors);
+        enigma.insertRotors(names);
+        enigma.setPlugboard(new Permutation("", alphabet));
+        int[] settings = new int[slots];
+        StringBuilder start = new StringBuilder();
+        for (int i = 1; i < slots; i += 1) {
+            settings[i] = (i % 2 == 0 ? i : i * 11) % 26;
+            start.append(alphabet.toChar(settings[i]));
+        }
+        enigma.setRotors(start.toString());
+        for (int t = 1; t <= 5000; t += 1) {
+            boolean[] moves = new boolean[slots];
+            moves[slots - 1] = true;
+            for (int i = 1; i < slots; i += 1) {
+                Rotor rotor = enigma.getAllRotorHM().get(names[i]);
+                if (i > 1 && rotor.atNotch(settings[i])) {
+                    moves[i] = moves[i - 1] = true;
+                }
+            }
+            for (int i = 1; i < slots; i += 1) {
+                settings[i] = (settings[i] + (moves[i] ? 1 : 0)) % 26;
+            }
+            enigma.convert(0);
+            if (t % 250 == 0) {
+                for (int i = 1; i < slots; i += 1) {
+                    assertEquals("slot " + i + " at " + t, settings[i],
+                            enigma.getRotors()[i].setting());
+                }
+            }
+        }
+    }
+    @Test
+    public void rotorMovesTest() {
+        Machine enigma = enigmaGen();
+        enigma.setRotors("AXLE");
+        enigma.setPlugboard(new Permutation("", alphabet));
+        int[] origin = new int[5];
+        for (int i = 0; i < 5; i += 1) {
+            origin[i] = enigma.getRotors()[i].setting();
+        }
+        StepSchedule schedule = new StepSchedule(enigma.getRotors(), origin);
+        assertTrue(schedule.exact());
+        long[] moves = new long[5];
+        for (int t = 0; t < 20000; t += 1) {
+            int[] before = new int[5];
+            for (int i = 0; i < 5; i += 1) {
+                before[i] = enigma.getRotors()[i].setting();
+            }
+            enigma.convert(0);
+            for (int i = 0; i < 5; i += 1) {
+                if (enigma.getRotors()[i].setting() != before[i]) {
+                    moves[i] += 1;
+                }
+            }
+            if (t % 997 == 0) {
+                for (int i = 0; i < 5; i += 1) {
+                    assertEquals("slot " + i + " at " + t, moves[i],
+                            schedule.moves(i, 0, t + 1));
+                }
+            }
+        }
+        long converted = Telemetry.characters();
+        enigma.convert("HIAWATHA");
+        assertEquals(converted + 8, Telemetry.characters());
+    }
+
+    @Test
+    public void convertParallelTest() {
+        Machine sequential = enigmaGen();
+        Machine parallel = enigmaGen();
+        char[] msg = new char[5 * ParallelConverter.CHUNK + 17];
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = (char) ('A' + (i * 7) % 26);
+        }
+        char[] expected = new char[msg.length];
+        char[] actual = new char[msg.length];
+        for (Machine enigma : new Machine[] {sequential, parallel}) {
+            enigma.setRotors("AXLE");
+            enigma.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                    alphabet));
+            enigma.convert("FROM");
+        }
+        sequential.convert(msg, 0, msg.length, expected, 0);
+        parallel.convertParallel(msg, 0, msg.length, actual, 0);
+        assertArrayEquals(expected, actual);
+        assertEquals(sequential.convert("HIAWATHA"),
+                parallel.convert("HIAWATHA"));
+    }
+    @Test
+    public void convertParallelSteppedTest() {
+        ArrayList<Rotor> rotors = allRotors();
+        rotors.add(new MovingRotor("ADJ",
+                new Permutation("(AELTPHQXRU) (BKNW) (CMOY) "
+                       + "(DFG) (IV) (JZ) (S)", alphabet), "ABCD"));
+        Machine sequential = new Machine(alphabet, 5, 3, rotors);
+        Machine parallel = new Machine(alphabet, 5, 3, rotors);
+        char[] msg = new char[8 * ParallelConverter.CHUNK + 5];
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = (char) ('A' + (i * 11) % 26);
+        }
+        char[] expected = new char[msg.length];
+        char[] actual = new char[msg.length];
+        for (Machine enigma : new Machine[] {sequential, parallel}) {
+            enigma.insertRotors(new String[]{"B", "BETA", "III", "ADJ",
+                                             "I"});
+            enigma.setRotors("AXLE");
+            enigma.setPlugboard(new Permutation("(HQ) (EX)", alphabet));
+        }
+        sequential.convert(msg, 0, msg.length, expected, 0);
+        parallel.convertParallel(msg, 0, msg.length, actual, 0);
+        assertArrayEquals(expected, actual);
+        assertEquals(sequential.convert("HIAWATHA"),
+                parallel.convert("HIAWATHA"));
+    }
+    @Test
+    public void sharedSpecTest() throws InterruptedException {
+        MachineSpec spec = new MachineSpec(alphabet, 5, 3, allRotors());
+        String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int k = 0; k < threads.length; k += 1) {
+            final int n = k;
+            threads[k] = new Thread(() -> {
+                Machine enigma = spec.newMachine();
+                enigma.insertRotors(new String[]{"B", "BETA", "III", "IV",
+                                                 "I"});
+                enigma.setRotors("AXLE");
+                enigma.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) "
+                                                    + "(BY)", alphabet));
+                String msg = "";
+                for (int i = 0; i < 1000 + n; i += 1) {
+                    msg += "FROM";
+                }
+                results[n] = enigma.convert(msg).substring(0, 4);
+            });
+            threads[k].start();
+        }
+        for (int k = 0; k < threads.length; k += 1) {
+            threads[k].join();
+            assertEquals("QVPQ", results[k]);
+        }
+        assertEquals(0, spec.rotors().get("I").setting());
+    }
+    @Test
+    public void largeAlphabetTest() {
+        int size = 12000;
+        int[] symbols = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            symbols[i] = 0x20000 + i;
+        }
+        Alphabet big = new Alphabet(new String(symbols, 0, size));
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        int[] reflector = new int[size];
+        int[] wiring = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            reflector[i] = i ^ 1;
+            wiring[i] = (i * 7 + 3) % size;
+        }
+        rotors.add(new Reflector("R", new Permutation(reflector, big)));
+        rotors.add(new MovingRotor("M", new Permutation(wiring, big),
+                new String(symbols, 5, 1)));
+        rotors.add(new MovingRotor("F", new Permutation(wiring, big),
+                new String(symbols, 9, 2)));
+        MachineSpec spec = new MachineSpec(big, 3, 2, rotors);
+        String setting = new String(symbols, 4, 1) + new String(symbols, 7, 1);
+        String plugs = "(" + new String(symbols, 100, 2) + ")";
+        String msg = new String(symbols, 100, 50);
+        Machine encoder = spec.newMachine();
+        encoder.insertRotors(new String[]{"R", "M", "F"});
+        encoder.setRotors(setting);
+        encoder.setPlugboard(new Permutation(plugs, big));
+        String cipher = encoder.convert(msg);
+        assertEquals(msg.length(), cipher.length());
+        assertFalse(msg.equals(cipher));
+        Machine decoder = spec.newMachine();
+        decoder.insertRotors(new String[]{"R", "M", "F"});
+        decoder.setRotors(setting);
+        decoder.setPlugboard(new Permutation(plugs, big));
+        assertEquals(msg, decoder.convert(cipher));
+    }
 }
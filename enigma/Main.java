@@ -2,11 +2,35 @@ package enigma;
 
 import org.checkerframework.checker.units.qual.A;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 
@@ -25,9 +49,73 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.
+     *  Alternatively, ARGS may be "compile", the name of a configuration
+     *  file, and the name of a file in which to store that configuration
+     *  in compiled form.  A compiled configuration may be given as
+     *  ARGS[0] in place of the original.
+     *  Or ARGS may be "bombe", the name of a configuration file, an
+     *  intercepted message, a crib (known plaintext of part of it) and,
+     *  optionally, the index in the message of the crib's first
+     *  character; the settings lines under which the message deciphers
+     *  to the crib there (anywhere it can fit, if no index is given) are
+     *  printed on the standard output.
+     *  Or ARGS may be "ioc", the name of a configuration file, an
+     *  intercepted message and, optionally, a count (10 by default); the
+     *  settings lines, with an empty plugboard, under which the message
+     *  deciphers to text with the highest index of coincidence are
+     *  printed, best first, each after its index of coincidence.
+     *  Or ARGS may be "plugs", the name of a configuration file, a
+     *  settings line, an intercepted message sent with the rotors that
+     *  line describes, the name of a file of text in the message's
+     *  language (or of the tables built from one by "ngrams") and,
+     *  optionally, a number of attempts (20 by default); the settings
+     *  line with the plugboard under which the message reads most like
+     *  that text is printed after its score.
+     *  Or ARGS may be "ngrams", the name of a configuration file, the
+     *  name of a file of text, and the name of a file in which to store
+     *  the statistics of the text over the configuration's alphabet, for
+     *  "plugs" to memory-map.
+     *  Or ARGS may be "serve", the name of a configuration file, and
+     *  either a port number, on which to listen on the loopback
+     *  interface, or the path of a Unix-domain socket to create; each
+     *  request received there is answered with the output for its
+     *  settings line and message, as described in EnigmaServer, until
+     *  the process is killed.
+     *  The first form, which converts messages, may be preceded by
+     *  "--stats", which prints the time and memory allocated in each
+     *  stage of the run, and counts of the work done, on the standard
+     *  error at exit.  The other forms do not take it. */
     public static void main(String... args) {
         try {
+            if (args.length > 1 && args[0].equals("--stats")
+                && COMMANDS.contains(args[1])) {
+                throw error("--stats applies only to converting messages");
+            }
+            if (args.length > 0 && args[0].equals("compile")) {
+                compile(args);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("bombe")) {
+                bombe(args);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("ioc")) {
+                ioc(args);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("plugs")) {
+                plugs(args);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("ngrams")) {
+                ngrams(args);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("serve")) {
+                serve(args);
+                return;
+            }
             new Main(args).process();
             return;
         } catch (EnigmaException excp) {
@@ -36,24 +124,177 @@ public final class Main {
         System.exit(1);
     }
 
+    /** Compile the configuration file ARGS[1] into ARGS[2]. */
+    private static void compile(String[] args) {
+        if (args.length != 3) {
+            throw error("Usage: compile CONFIG OUTPUT");
+        }
+        CompiledConfig.write(new Main(new String[] {args[1]}).readSpec(),
+                             args[2]);
+    }
+
+    /** Search for the settings under which message ARGS[2] deciphers to
+     *  crib ARGS[3] at index ARGS[4] (or wherever it can fit if absent),
+     *  using the rotors in configuration file ARGS[1], and print them. */
+    private static void bombe(String[] args) {
+        if (args.length != 4 && args.length != 5) {
+            throw error("Usage: bombe CONFIG MESSAGE CRIB [INDEX]");
+        }
+        MachineSpec spec = new Main(new String[] {args[1]}).readSpec();
+        String message = args[2].replace(" ", "");
+        String crib = args[3].replace(" ", "");
+        int first = 0;
+        int last = message.length() - crib.length();
+        if (args.length == 5) {
+            try {
+                first = Integer.parseInt(args[4]);
+                last = first;
+            } catch (NumberFormatException excp) {
+                throw error("bad crib index: %s", args[4]);
+            }
+        }
+        for (int offset = first; offset <= last; offset++) {
+            if (args.length == 5 || Bombe.fits(message, crib, offset)) {
+                for (String line : new Bombe(spec, message, crib,
+                                             offset).search()) {
+                    System.out.println(line);
+                }
+            }
+        }
+    }
+
+    /** Print the ARGS[3] (or 10) settings of the rotors in configuration
+     *  file ARGS[1] under which message ARGS[2] deciphers to the text
+     *  with the highest index of coincidence. */
+    private static void ioc(String[] args) {
+        if (args.length != 3 && args.length != 4) {
+            throw error("Usage: ioc CONFIG MESSAGE [COUNT]");
+        }
+        MachineSpec spec = new Main(new String[] {args[1]}).readSpec();
+        int count = 10;
+        if (args.length == 4) {
+            try {
+                count = Integer.parseInt(args[3]);
+            } catch (NumberFormatException excp) {
+                throw error("bad count: %s", args[3]);
+            }
+        }
+        for (IocSearch.Candidate candidate
+                 : new IocSearch(spec, args[2], count).search()) {
+            System.out.println(candidate);
+        }
+    }
+
+    /** Print the settings line ARGS[2], with the plugboard under which
+     *  message ARGS[3] reads most like the text in file ARGS[4] found in
+     *  ARGS[5] (or 20) attempts, for the rotors in configuration file
+     *  ARGS[1]. */
+    private static void plugs(String[] args) {
+        if (args.length != 5 && args.length != 6) {
+            throw error("Usage: plugs CONFIG SETTINGS MESSAGE CORPUS "
+                        + "[ATTEMPTS]");
+        }
+        Main main = new Main(new String[] {args[1]});
+        Machine machine = main.readConfig();
+        String settings = args[2].trim();
+        if (!settings.startsWith("* ")) {
+            throw error("bad settings line: %s", settings);
+        }
+        main.setUp(machine, settings);
+        int attempts = 20;
+        if (args.length == 6) {
+            try {
+                attempts = Integer.parseInt(args[5]);
+            } catch (NumberFormatException excp) {
+                throw error("bad number of attempts: %s", args[5]);
+            }
+        }
+        Ngrams[] stages;
+        if (Ngrams.isCompiled(args[4])) {
+            stages = Ngrams.map(args[4]);
+        } else {
+            stages = readNgrams(main._alphabet, args[4]);
+        }
+        PlugboardSearch.Solution best = new PlugboardSearch(
+            machine, args[3], stages, attempts, 0).search();
+        int plugs = settings.indexOf('(');
+        String rotors = plugs < 0 ? settings : settings.substring(0, plugs);
+        System.out.printf("%.2f %s %s%n", best.score(), rotors.trim(),
+                          best.plugs());
+    }
+
+    /** Store the statistics of the text in file ARGS[2] over the
+     *  alphabet of configuration file ARGS[1] in file ARGS[3]. */
+    private static void ngrams(String[] args) {
+        if (args.length != 4) {
+            throw error("Usage: ngrams CONFIG CORPUS OUTPUT");
+        }
+        Alphabet alphabet =
+            new Main(new String[] {args[1]}).readSpec().alphabet();
+        Ngrams.write(readNgrams(alphabet, args[2]), args[3]);
+    }
+
+    /** Return the statistics of the sequences of two, three and four
+     *  letters of ALPHABET in the text in file CORPUS, as far as they
+     *  can be tabulated. */
+    private static Ngrams[] readNgrams(Alphabet alphabet, String corpus) {
+        ArrayList<Ngrams> result = new ArrayList<Ngrams>();
+        for (int n = 2; n <= 4; n++) {
+            if (Math.pow(alphabet.size(), n) <= Ngrams.MAX_ENTRIES) {
+                try (Reader text = getReader(corpus)) {
+                    result.add(new Ngrams(alphabet, n, text));
+                } catch (IOException excp) {
+                    throw error("could not read %s", corpus);
+                }
+            }
+        }
+        return result.toArray(new Ngrams[0]);
+    }
+
+    /** Answer requests on address ARGS[2] with the rotors of
+     *  configuration file ARGS[1], until killed.  When the process is
+     *  killed, the server is shut down first, so that a Unix-domain
+     *  socket it created is removed. */
+    private static void serve(String[] args) {
+        if (args.length != 3) {
+            throw error("Usage: serve CONFIG PORT|SOCKET");
+        }
+        Main main = new Main(new String[] {args[1]});
+        Machine machine = main.readConfig();
+        EnigmaServer server =
+            new EnigmaServer(main, machine, EnigmaServer.address(args[2]));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                server.awaitShutDown();
+            } catch (InterruptedException excp) {
+                /* Exiting anyway. */
+            }
+        }));
+        server.run();
+    }
+
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        boolean stats = args.length > 0 && args[0].equals("--stats");
+        if (stats) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        _stats = new Stats(stats);
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
+        _configName = args[0];
         _config = getInput(args[0]);
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
-        } else {
-            _input = new Scanner(System.in);
+            _inputChannel = openInput(args[1]);
+            _inputMapped = Files.isRegularFile(Paths.get(args[1]));
         }
 
         if (args.length > 2) {
-            _output = getOutput(args[2]);
-        } else {
-            _output = System.out;
+            _outputChannel = openOutput(args[2]);
         }
     }
 
@@ -66,47 +307,460 @@ public final class Main {
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a Reader reading from the file named NAME.  Regular files
+     *  are memory-mapped rather than read through a stream. */
+    private static Reader getReader(String name) {
         try {
-            return new PrintStream(new File(name));
+            Path path = Paths.get(name);
+            if (Files.isRegularFile(path)) {
+                return new MappedReader(FileChannel.open(path));
+            }
+            return new BufferedReader(new FileReader(name));
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
     }
 
+    /** Return a channel reading from the file named NAME. */
+    private static FileChannel openInput(String name) {
+        try {
+            return FileChannel.open(Paths.get(name));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a channel writing to the file named NAME, which is
+     *  emptied first. */
+    private static FileChannel openOutput(String name) {
+        try {
+            return FileChannel.open(Paths.get(name),
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Prepare to read the input and write the output.  When the
+     *  symbols of _alphabet are single bytes of the default charset, the
+     *  input is read, converted and written as bytes, through _bytes,
+     *  without decoding it into characters and encoding it again; the
+     *  output is the same either way.  Otherwise it is read through
+     *  _input and written through _writer.  Either way, input from a
+     *  regular file is memory-mapped, and output to a file is written
+     *  from a direct buffer. */
+    private void openStreams() throws IOException {
+        _bytes = ByteAlphabet.of(_alphabet, Charset.defaultCharset());
+        if (_bytes != null) {
+            _byteInput = _inputChannel != null ? _inputChannel
+                : new FileInputStream(FileDescriptor.in).getChannel();
+            _byteOutput = _outputChannel != null ? _outputChannel
+                : new FileOutputStream(FileDescriptor.out).getChannel();
+            if (_inputMapped) {
+                _inputSize = _inputChannel.size();
+                mapInput(0);
+            }
+            _inputBytes = new byte[BLOCK_SIZE];
+            _byteBlock = new byte[BLOCK_SIZE];
+            _outputBytes = new byte[BLOCK_SIZE];
+            _outputBuffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            _lineBytes = new byte[LINE_SIZE];
+            _lineSeparatorBytes = _bytes.encode(LINE_SEPARATOR);
+            return;
+        }
+        if (_inputChannel == null) {
+            _input = new InputStreamReader(System.in);
+        } else if (_inputMapped) {
+            _input = new MappedReader(_inputChannel);
+        } else {
+            _input = new BufferedReader(Channels.newReader(_inputChannel,
+                Charset.defaultCharset().newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE), -1));
+        }
+        if (_outputChannel != null) {
+            _writer = new ChannelWriter(_outputChannel);
+        } else {
+            _writer = new BufferedWriter(new OutputStreamWriter(System.out));
+        }
+    }
+
     /** Configure an Enigma machine from the contents of configuration
-     *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
+     *  file _config and apply it to the messages in the input, sending
+     *  the results to the output.  The input is read one block at a
+     *  time, so memory use does not depend on the length of its
+     *  lines. */
     private void process() {
-        Machine enigma = readConfig();
-        String initialSetting = _input.nextLine();
-        if (!(initialSetting.charAt(0) == '*')) {
-            throw new EnigmaException(
-                    "Incorrect input format - first line not a setting");
+        try {
+            _stats.start(Stats.CONFIG);
+            Machine enigma = readConfig();
+            _stats.stop(Stats.CONFIG);
+            try {
+                openStreams();
+                int c = read();
+                if (c != '*') {
+                    throw new EnigmaException("Incorrect input format"
+                                              + " - first line not a setting");
+                }
+                setUp(enigma, readLine(c));
+                for (c = read(); c != -1; c = read()) {
+                    if (c == '*' && !atLineEnd(peek())) {
+                        setUp(enigma, readLine(c));
+                    } else {
+                        convertLine(enigma, c);
+                    }
+                }
+                flush();
+            } catch (IOException excp) {
+                throw error("could not read input");
+            } finally {
+                try {
+                    flush();
+                } catch (IOException excp) {
+                    /* Report the original error, if any. */
+                }
+                _stats.report(System.err);
+            }
+        } finally {
+            close();
         }
-        setUp(enigma, initialSetting);
-        while (_input.hasNextLine()) {
-            String line = _input.nextLine();
-            if (line.isEmpty()) {
-                printMessageLine(" ");
+    }
+
+    /** Close the configuration and the input and output files, leaving
+     *  the standard input and output open. */
+    private void close() {
+        _config.close();
+        try {
+            if (_inputChannel != null) {
+                _inputChannel.close();
+            }
+            if (_outputChannel != null) {
+                _outputChannel.close();
             }
-            if (line.length() > 1 && line.charAt(0) == '*') {
-                setUp(enigma, line);
+        } catch (IOException excp) {
+            /* Everything has been read and written already. */
+        }
+    }
+
+    /** Send what has been written to the output on its way. */
+    private void flush() throws IOException {
+        if (_writer != null) {
+            _writer.flush();
+        }
+        if (_byteOutput != null) {
+            _outputBuffer.clear();
+            _outputBuffer.put(_outputBytes, 0, _outputPos).flip();
+            while (_outputBuffer.hasRemaining()) {
+                _byteOutput.write(_outputBuffer);
+            }
+            _outputPos = 0;
+        }
+    }
+
+    /** Return the next character of the input, or -1 at its end.  When
+     *  reading bytes, return the next byte, as a value in 0..255. */
+    private int read() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            _inputPos += 1;
+        }
+        return c;
+    }
+
+    /** Return the next character (or byte) of the input without
+     *  consuming it, or -1 at its end. */
+    private int peek() throws IOException {
+        if (_inputPos == _inputLimit) {
+            if (_bytes == null) {
+                _inputLimit = _input.read(_inputBuf);
+            } else if (_inputMap != null) {
+                _inputLimit = readMapped();
             } else {
-                String[] words = line.split(" ");
-                String convertedLine = "";
-                for (String word : words) {
-                    convertedLine += word;
+                _inputLimit = _byteInput.read(ByteBuffer.wrap(_inputBytes));
+            }
+            _inputPos = 0;
+            if (_inputLimit <= 0) {
+                _inputLimit = 0;
+                return -1;
+            }
+        }
+        if (_bytes == null) {
+            return _inputBuf[_inputPos];
+        }
+        return _inputBytes[_inputPos] & 0xFF;
+    }
+
+    /** Map the window of the input file starting at byte START. */
+    private void mapInput(long start) throws IOException {
+        _inputMap = _inputChannel.map(FileChannel.MapMode.READ_ONLY, start,
+            Math.min(MappedReader.WINDOW, _inputSize - start));
+        _mapStart = start;
+    }
+
+    /** Fill _inputBytes from the mapped input file, moving on to the next
+     *  window as each is used up, and return the number of bytes copied,
+     *  or -1 at the end of the file. */
+    private int readMapped() throws IOException {
+        if (!_inputMap.hasRemaining()) {
+            long next = _mapStart + _inputMap.limit();
+            if (next == _inputSize) {
+                return -1;
+            }
+            mapInput(next);
+        }
+        int n = Math.min(_inputMap.remaining(), _inputBytes.length);
+        _inputMap.get(_inputBytes, 0, n);
+        return n;
+    }
+
+    /** Return true iff C ends a line of input. */
+    private boolean atLineEnd(int c) {
+        return c == '\n' || c == '\r' || c == -1;
+    }
+
+    /** Consume the line terminator C, which ends a line of input. */
+    private void endLine(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+    }
+
+    /** Return the line of input that starts with the character (or
+     *  byte) C. */
+    private String readLine(int c) throws IOException {
+        if (_bytes != null) {
+            int n = 0;
+            for (; !atLineEnd(c); c = read()) {
+                appendLineByte(n, c);
+                n += 1;
+            }
+            endLine(c);
+            return _bytes.decode(_lineBytes, 0, n);
+        }
+        StringBuilder line = new StringBuilder();
+        for (; !atLineEnd(c); c = read()) {
+            line.append((char) c);
+        }
+        endLine(c);
+        return line.toString();
+    }
+
+    /** Convert the line of input starting with the character C, ignoring
+     *  blanks, and print the result in groups of five.  An empty line
+     *  produces an empty line of output. */
+    private void convertLine(Machine M, int c) throws IOException {
+        Telemetry.Message event = null;
+        if (Telemetry.recording()) {
+            event = new Telemetry.Message();
+            event.begin();
+        }
+        boolean empty = atLineEnd(c);
+        _groupCount = 0;
+        if (_bytes == null && !_alphabet.bmp()) {
+            c = convertCodePoints(M, c);
+        } else if (_bytes == null) {
+            c = convertChars(M, c);
+        } else {
+            c = convertBytes(M, c);
+        }
+        endLine(c);
+        if (empty || _groupCount > 0) {
+            if (_bytes == null) {
+                _writer.write(LINE_SEPARATOR);
+            } else {
+                for (byte b : _lineSeparatorBytes) {
+                    writeByte(b);
                 }
-                printMessageLine(enigma.convert(convertedLine));
             }
         }
+        _stats.countMessage(_groupCount);
+        if (event != null) {
+            event.length = _groupCount;
+            event.commit();
+        }
+    }
+
+    /** Convert and print the characters of the line of input starting
+     *  with the character C, ignoring blanks, and return the character
+     *  that ends it. */
+    private int convertChars(Machine M, int c) throws IOException {
+        int n = 0;
+        for (; !atLineEnd(c); c = read()) {
+            if (c != ' ') {
+                _block[n] = (char) c;
+                n += 1;
+                if (n == _block.length) {
+                    convertBlock(M, n);
+                    n = 0;
+                }
+            }
+        }
+        convertBlock(M, n);
+        return c;
+    }
+
+    /** Convert and print the code points of the line of input starting
+     *  with the character C, ignoring blanks, and return the character
+     *  that ends it.  A surrogate pair is read as the one supplementary
+     *  character it encodes. */
+    private int convertCodePoints(Machine M, int c) throws IOException {
+        if (_codeBlock == null) {
+            _codeBlock = new int[BLOCK_SIZE];
+        }
+        int n = 0;
+        for (; !atLineEnd(c); c = read()) {
+            if (c != ' ') {
+                int low = peek();
+                if (Character.isHighSurrogate((char) c) && low != -1
+                        && Character.isLowSurrogate((char) low)) {
+                    c = Character.toCodePoint((char) c, (char) read());
+                }
+                _codeBlock[n] = c;
+                n += 1;
+                if (n == _codeBlock.length) {
+                    convertCodeBlock(M, n);
+                    n = 0;
+                }
+            }
+        }
+        convertCodeBlock(M, n);
+        return c;
+    }
+
+    /** Convert the first LEN code points of _codeBlock with M and print
+     *  them, continuing the groups of the current output line. */
+    private void convertCodeBlock(Machine M, int len) throws IOException {
+        _stats.start(Stats.CONVERT);
+        M.convertCodePoints(_codeBlock, 0, len);
+        _stats.stop(Stats.CONVERT);
+        _stats.start(Stats.GROUPING);
+        printMessageLine(_writer, _codeBlock, len);
+        _stats.stop(Stats.GROUPING);
+    }
+
+    /** Convert and print the bytes of the line of input starting with
+     *  the byte C, ignoring blanks, and return the byte that ends it.
+     *  Unless every byte is a character, a run of non-ASCII bytes is
+     *  converted as the characters it decodes to, none of which is in
+     *  the alphabet. */
+    private int convertBytes(Machine M, int c) throws IOException {
+        byte[] block = _byteBlock;
+        int run = _bytes.singleByte() ? Integer.MAX_VALUE
+            : ByteAlphabet.NON_ASCII;
+        int n = 0;
+        while (!atLineEnd(c)) {
+            int count = 1;
+            if (c >= run) {
+                count = decodeRun(c);
+            } else if (c == ' ') {
+                count = 0;
+            }
+            for (; count > 0; count -= 1) {
+                if (n == block.length) {
+                    convertBlock(M, n);
+                    n = 0;
+                }
+                block[n] = (byte) c;
+                n += 1;
+            }
+            byte[] in = _inputBytes;
+            int pos = _inputPos;
+            int limit = _inputLimit;
+            for (; pos < limit && n < block.length; pos += 1) {
+                int b = in[pos] & 0xFF;
+                if (b == '\n' || b == '\r' || b >= run) {
+                    break;
+                }
+                if (b != ' ') {
+                    block[n] = (byte) b;
+                    n += 1;
+                }
+            }
+            _inputPos = pos;
+            c = read();
+        }
+        convertBlock(M, n);
+        return c;
+    }
+
+    /** Consume the rest of the run of non-ASCII bytes of the input that
+     *  starts with the byte C, and return the number of characters the
+     *  run decodes to. */
+    private int decodeRun(int c) throws IOException {
+        appendLineByte(0, c);
+        int n = 1;
+        while (peek() >= ByteAlphabet.NON_ASCII) {
+            appendLineByte(n, read());
+            n += 1;
+        }
+        return _bytes.decode(_lineBytes, 0, n).length();
+    }
+
+    /** Store the byte C at index N of _lineBytes, growing it if need
+     *  be. */
+    private void appendLineByte(int n, int c) {
+        if (n == _lineBytes.length) {
+            _lineBytes = Arrays.copyOf(_lineBytes, 2 * n);
+        }
+        _lineBytes[n] = (byte) c;
+    }
+
+    /** Convert the first LEN characters of _block with M and print them,
+     *  continuing the groups of the current output line.  When reading
+     *  bytes, convert the first LEN bytes of _byteBlock instead. */
+    private void convertBlock(Machine M, int len) throws IOException {
+        _stats.start(Stats.CONVERT);
+        if (_bytes == null) {
+            M.convert(_block, 0, len, _block, 0);
+        } else {
+            M.convert(_byteBlock, 0, len, _byteBlock, 0, _bytes);
+        }
+        _stats.stop(Stats.CONVERT);
+        _stats.start(Stats.GROUPING);
+        if (_bytes == null) {
+            printMessageLine(_writer, _block, len);
+        } else {
+            printMessageLine(_byteBlock, len);
+        }
+        _stats.stop(Stats.GROUPING);
     }
 
     /** Return an Enigma machine configured from the contents of configuration
      *  file _config. */
-    private Machine readConfig() {
+    Machine readConfig() {
+        return readSpec().newMachine();
+    }
+
+    /** Return the machine description in configuration file _config,
+     *  which may be in text or compiled form. */
+    private MachineSpec readSpec() {
+        Telemetry.ConfigLoad event = null;
+        if (Telemetry.recording()) {
+            event = new Telemetry.ConfigLoad();
+            event.begin();
+        }
+        boolean compiled = CompiledConfig.isCompiled(_configName);
+        MachineSpec spec;
+        if (compiled) {
+            spec = CompiledConfig.read(_configName);
+            _alphabet = spec.alphabet();
+        } else {
+            spec = readTextSpec();
+        }
+        if (event != null) {
+            event.config = _configName;
+            event.compiled = compiled;
+            event.alphabetSize = _alphabet.size();
+            event.rotors = spec.rotors().size();
+            event.commit();
+        }
+        return spec;
+    }
+
+    /** Return the machine description in configuration file _config,
+     *  which is in text form. */
+    private MachineSpec readTextSpec() {
         try {
             _alphabet = new Alphabet(_config.next());
             if (_alphabet.contains('*')
@@ -120,7 +774,7 @@ public final class Main {
             while (_config.hasNext()) {
                 rotors.add(readRotor());
             }
-            return new Machine(_alphabet, numRotors, pawls, rotors);
+            return new MachineSpec(_alphabet, numRotors, pawls, rotors);
         } catch (NoSuchElementException excp) {
             throw error("configuration file truncated");
         }
@@ -131,11 +785,11 @@ public final class Main {
         try {
             String name = _config.next();
             String notches = _config.next();
-            String cycles = "";
+            StringBuilder cycles = new StringBuilder();
             while (_config.hasNext("\\s*\\(.+\\)\\s*")) {
-                cycles += _config.next();
+                cycles.append(_config.next());
             }
-            Permutation perm = new Permutation(cycles, _alphabet);
+            Permutation perm = new Permutation(cycles.toString(), _alphabet);
             if (notches.equals("N")) {
                 return new FixedRotor(name, perm);
             } else if (notches.equals("R")) {
@@ -149,79 +803,294 @@ public final class Main {
     }
 
     /** Set M according to the specification given on SETTINGS,
-     *  which must have the format specified in the assignment. */
+     *  which must have the format specified in the assignment.  The
+     *  checked rotor arrangement and the plugboard are kept in _setups,
+     *  so that a line with the same rotors and plugboard as a recent one
+     *  only sets the rotors' positions and rings. */
     private void setUp(Machine M, String settings) {
+        _stats.start(Stats.SETUP);
+        Telemetry.SetUp event = null;
+        if (Telemetry.recording()) {
+            event = new Telemetry.SetUp();
+            event.begin();
+        }
         String setting = "";
-        String plugs = "";
         String alphabetRotation = "";
-        String[] rotorArr = new String[M.numRotors()];
-        int index = 0;
-        Scanner set = new Scanner(settings.substring(2));
-        while (set.hasNext()) {
-            String curr = set.next();
+        StringBuilder names = new StringBuilder();
+        StringBuilder plugs = new StringBuilder();
+        int count = 0;
+        int n = settings.length();
+        for (int i = 2; i < n;) {
+            if (Character.isWhitespace(settings.charAt(i))) {
+                i += 1;
+                continue;
+            }
+            int start = i;
+            while (i < n && !Character.isWhitespace(settings.charAt(i))) {
+                i += 1;
+            }
+            String curr = settings.substring(start, i);
             if (!(M.getAllRotorHM().containsKey(curr))) {
                 if (curr.charAt(0) != '(' && setting.isEmpty()) {
                     setting = curr;
                 } else if (curr.charAt(0) != '(') {
                     alphabetRotation = curr;
                 } else {
-                    plugs += curr + " ";
+                    plugs.append(curr).append(' ');
                 }
             } else {
-                try {
-                    rotorArr[index] = curr;
-                    index += 1;
-                } catch (IndexOutOfBoundsException e) {
-                    throw new EnigmaException("Wrong size array provided.");
+                names.append(count == 0 ? "" : " ").append(curr);
+                count += 1;
+            }
+        }
+        if (count != M.numRotors()) {
+            throw new EnigmaException("Wrong size array provided.");
+        }
+        String key = SettingsCache.key(names, plugs);
+        SettingsCache.Entry entry = _setups.get(key);
+        if (entry == null) {
+            String[] rotorArr = names.toString().split(" ");
+            HashSet<String> distinct = new HashSet<String>();
+            for (String s : rotorArr) {
+                if (!distinct.add(s)) {
+                    throw new EnigmaException("Duplicate rotor name.");
                 }
             }
+            M.insertRotors(rotorArr);
+            if (!alphabetRotation.isEmpty()) {
+                M.setAlphabets(alphabetRotation);
+            }
+            M.setRotors(setting);
+            Permutation plugboard =
+                new Permutation(plugs.toString(), _alphabet);
+            M.setPlugboard(plugboard);
+            _setups.put(key, rotorArr, plugboard);
+        } else {
+            M.insertRotors(entry.rotors());
+            if (!alphabetRotation.isEmpty()) {
+                M.setAlphabets(alphabetRotation);
+            }
+            M.setRotors(setting);
+            M.setPlugboard(entry.plugboard());
         }
-        ArrayList<String> names = new ArrayList<String>();
-        for (String s : rotorArr) {
-            if (s == null) {
-                throw new EnigmaException("Wrong size array provided.");
+        Telemetry.addSettingsSwitch();
+        if (event != null) {
+            event.settings = settings.substring(2);
+            event.commit();
+        }
+        _stats.countSettings(entry != null);
+        _stats.stop(Stats.SETUP);
+    }
+
+    /** Print the first LEN characters of MSG in groups of five on OUT,
+     *  continuing the groups of the current output line. */
+    private void printMessageLine(Appendable out, char[] msg, int len)
+        throws IOException {
+        for (int i = 0; i < len; i++) {
+            if (_groupCount > 0 && _groupCount % 5 == 0) {
+                out.append(' ');
             }
-            if (names.contains(s)) {
-                throw new EnigmaException("Duplicate rotor name.");
+            out.append(msg[i]);
+            _groupCount += 1;
+        }
+    }
+
+    /** Print the first LEN code points of MSG in groups of five on OUT,
+     *  continuing the groups of the current output line. */
+    private void printMessageLine(Appendable out, int[] msg, int len)
+        throws IOException {
+        for (int i = 0; i < len; i++) {
+            if (_groupCount > 0 && _groupCount % 5 == 0) {
+                out.append(' ');
+            }
+            if (Character.isBmpCodePoint(msg[i])) {
+                out.append((char) msg[i]);
             } else {
-                names.add(s);
+                out.append(Character.highSurrogate(msg[i]))
+                    .append(Character.lowSurrogate(msg[i]));
             }
+            _groupCount += 1;
         }
-        M.insertRotors(rotorArr);
-        if (!alphabetRotation.isEmpty()) {
-            M.setAlphabets(alphabetRotation);
+    }
+
+    /** Print the first LEN bytes of MSG in groups of five on the output,
+     *  as printMessageLine prints characters. */
+    private void printMessageLine(byte[] msg, int len) throws IOException {
+        for (int i = 0; i < len; i++) {
+            if (_groupCount > 0 && _groupCount % 5 == 0) {
+                writeByte(BLANK);
+            }
+            writeByte(msg[i]);
+            _groupCount += 1;
         }
-        M.setRotors(setting);
-        M.setPlugboard(new Permutation(plugs, _alphabet));
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        if (msg.equals(" ")) {
-            _output.println();
-        } else {
-            for (int i = 0; i < msg.length(); i += 5) {
-                if (msg.length() - i <= 5) {
-                    _output.println(msg.substring(i, msg.length()));
-                } else {
-                    _output.print(msg.substring(i, i + 5) + " ");
+    /** Write B to the output, when it is written as bytes. */
+    private void writeByte(byte b) throws IOException {
+        if (_outputPos == _outputBytes.length) {
+            flush();
+        }
+        _outputBytes[_outputPos] = b;
+        _outputPos += 1;
+    }
+
+    /** Return the conversion by M of the lines of REQUEST after its
+     *  first, which must be a settings line, as the lines of output
+     *  would be printed for them, each ended by a newline. */
+    String respond(Machine M, String request) throws IOException {
+        int end = request.indexOf('\n');
+        String settings = end < 0 ? request : request.substring(0, end);
+        if (settings.endsWith("\r")) {
+            settings = settings.substring(0, settings.length() - 1);
+        }
+        if (!settings.startsWith("*")) {
+            throw new EnigmaException(
+                    "Incorrect input format - first line not a setting");
+        }
+        setUp(M, settings);
+        StringBuilder result = new StringBuilder(request.length() * 2);
+        if (_requestChars.length < request.length()) {
+            _requestChars = new char[request.length()];
+        }
+        char[] line = _requestChars;
+        while (end >= 0 && end + 1 < request.length()) {
+            int start = end + 1;
+            end = request.indexOf('\n', start);
+            int stop = end < 0 ? request.length() : end;
+            if (stop > start && request.charAt(stop - 1) == '\r') {
+                stop -= 1;
+            }
+            int n = 0;
+            for (int i = start; i < stop; i++) {
+                char c = request.charAt(i);
+                if (c != ' ' && c != '\r') {
+                    line[n] = c;
+                    n += 1;
                 }
             }
+            _groupCount = 0;
+            if (_alphabet.bmp()) {
+                M.convert(line, 0, n, line, 0);
+                printMessageLine(result, line, n);
+            } else {
+                n = codePoints(line, n);
+                M.convertCodePoints(_requestCodes, 0, n);
+                printMessageLine(result, _requestCodes, n);
+            }
+            if (start == stop || _groupCount > 0) {
+                result.append('\n');
+            }
+        }
+        return result.toString();
+    }
+
+    /** Fill _requestCodes with the code points of the first LEN chars of
+     *  CHARS, and return how many there are. */
+    private int codePoints(char[] chars, int len) {
+        if (_requestCodes.length < len) {
+            _requestCodes = new int[len];
+        }
+        int n = 0;
+        int i = 0;
+        while (i < len) {
+            int c = Character.codePointAt(chars, i, len);
+            _requestCodes[n] = c;
+            n += 1;
+            i += Character.charCount(c);
         }
+        return n;
     }
 
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
+    /** The blank-free chars of a message line of a request, reused from
+     *  one request to the next. */
+    private char[] _requestChars = new char[0];
+    /** The code points of _requestChars, when my alphabet has
+     *  supplementary characters. */
+    private int[] _requestCodes = new int[0];
 
-    /** Source of input messages. */
-    private Scanner _input;
+    /** The input file, or null to read the standard input. */
+    private FileChannel _inputChannel;
+    /** True iff _inputChannel is a regular file, which may be mapped. */
+    private boolean _inputMapped;
+    /** The output file, or null to write the standard output. */
+    private FileChannel _outputChannel;
+    /** The symbols of _alphabet as bytes of the default charset, when
+     *  the input is read and written as bytes; otherwise null. */
+    private ByteAlphabet _bytes;
+
+    /** Source of input messages, when read as characters. */
+    private Reader _input;
+    /** Characters read from _input but not yet processed. */
+    private char[] _inputBuf = new char[BLOCK_SIZE];
+    /** Index of the next unprocessed character in _inputBuf. */
+    private int _inputPos;
+    /** Number of valid characters in _inputBuf. */
+    private int _inputLimit;
+    /** Message characters waiting to be converted. */
+    private char[] _block = new char[BLOCK_SIZE];
+    /** Code points of the message being converted, when my alphabet has
+     *  supplementary characters; allocated on first use. */
+    private int[] _codeBlock;
+    /** Number of characters printed on the current output line. */
+    private int _groupCount;
+    /** Size of the input and conversion buffers. */
+    private static final int BLOCK_SIZE = 1 << 13;
+
+    /** Source of input messages, when read as bytes. */
+    private ReadableByteChannel _byteInput;
+    /** The window of the input file mapped into memory, when it is a
+     *  regular file read as bytes; otherwise null. */
+    private ByteBuffer _inputMap;
+    /** Offset in the input file of the start of _inputMap. */
+    private long _mapStart;
+    /** Size of the input file, when mapped. */
+    private long _inputSize;
+    /** Bytes read from _byteInput, of which the first _inputLimit are
+     *  valid and those from _inputPos on not yet processed. */
+    private byte[] _inputBytes;
+    /** Message bytes waiting to be converted. */
+    private byte[] _byteBlock;
+    /** The bytes of a settings line or of a run of non-ASCII bytes. */
+    private byte[] _lineBytes;
+    /** Initial size of _lineBytes. */
+    private static final int LINE_SIZE = 1 << 7;
+    /** Destination for converted messages, when written as bytes. */
+    private WritableByteChannel _byteOutput;
+    /** Bytes waiting to be written to _byteOutput. */
+    private byte[] _outputBytes;
+    /** Direct buffer through which _outputBytes are written. */
+    private ByteBuffer _outputBuffer;
+    /** Number of bytes in _outputBytes. */
+    private int _outputPos;
+    /** LINE_SEPARATOR in the default charset. */
+    private byte[] _lineSeparatorBytes;
+    /** Separates groups of five when writing bytes. */
+    private static final byte BLANK = ' ';
 
     /** Source of machine configuration. */
     private Scanner _config;
+    /** Name of the configuration file. */
+    private String _configName;
+
+    /** Time and allocation of each stage, for --stats. */
+    private final Stats _stats;
+    /** Most settings lines whose checked parts are kept in _setups. */
+    private static final int SETUP_CACHE = 256;
+    /** Checked rotor arrangements and plugboards of recent settings
+     *  lines. */
+    private final SettingsCache _setups = new SettingsCache(SETUP_CACHE);
 
-    /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    /** Destination for encoded/decoded messages, when written as
+     *  characters. */
+    private Writer _writer;
+    /** Ends each line of output. */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    /** The first arguments that select a form of main other than
+     *  converting messages. */
+    private static final List<String> COMMANDS =
+        Arrays.asList("compile", "bombe", "ioc", "plugs", "ngrams", "serve");
     /** ArrayList of all rotors. **/
     private ArrayList<Rotor> rotors = new ArrayList<Rotor>();
 }
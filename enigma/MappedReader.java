@@ -0,0 +1,80 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/** A Reader that decodes a file by memory-mapping it, a window at a time,
+ *  rather than copying its contents through an input stream.  Bytes are
+ *  decoded with the default charset, as for a FileReader.
+ *  @author Connor Bernard
+ */
+class MappedReader extends Reader {
+
+    /** Bytes of the file mapped at once.  Files larger than this are
+     *  read through successive windows. */
+    static final long WINDOW = 1L << 28;
+
+    /** A reader for the file open on CHANNEL. */
+    MappedReader(FileChannel channel) throws IOException {
+        _channel = channel;
+        _size = channel.size();
+        _decoder = Charset.defaultCharset().newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        map(0);
+    }
+
+    /** Map the window of the file starting at byte START. */
+    private void map(long start) throws IOException {
+        _start = start;
+        _bytes = _channel.map(FileChannel.MapMode.READ_ONLY, start,
+                              Math.min(WINDOW, _size - start));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off && !_done) {
+            boolean last = _start + _bytes.limit() == _size;
+            CoderResult result = _decoder.decode(_bytes, out, last);
+            if (result.isUnderflow()) {
+                if (last) {
+                    _decoder.flush(out);
+                    _done = true;
+                } else {
+                    map(_start + _bytes.position());
+                }
+            }
+        }
+        int n = out.position() - off;
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+    /** The file being read. */
+    private final FileChannel _channel;
+    /** Length of the file in bytes. */
+    private final long _size;
+    /** Converts the file's bytes to characters. */
+    private final CharsetDecoder _decoder;
+    /** The currently mapped window. */
+    private ByteBuffer _bytes;
+    /** Offset in the file of the first byte of _bytes. */
+    private long _start;
+    /** True once every byte has been decoded. */
+    private boolean _done;
+}
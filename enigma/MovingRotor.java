@@ -17,26 +17,58 @@ class MovingRotor extends Rotor {
     MovingRotor(String name, Permutation perm, String notches) {
         super(name, perm);
         _notches = notches;
+        _notchTable = buildNotchTable();
     }
     /** Advance me one position, if possible. By default, does nothing. */
     @Override
     void advance() {
-        set(permutation().wrap(setting() + 1));
+        int next = setting() + 1;
+        set(next == size() ? 0 : next);
     }
     /** Return true iff I have a ratchet and can move. */
     @Override
     boolean rotates() {
         return true;
     }
-    /** Returns true iff I am positioned to allow the rotor to my left
-     *  to advance. */
+    /** Returns true iff I would allow the rotor to my left to advance
+     *  when at setting POSN. */
     @Override
-    boolean atNotch() {
-        return _notches.contains(
-                Character.toString(
-                        alphabet().toChar(setting())));
+    boolean atNotch(int posn) {
+        return notchTable()[posn];
+    }
+    /** Return a table, indexed by setting, of whether I am at a notch. */
+    @Override
+    boolean[] notchTable() {
+        return _notchTable;
+    }
+    /** Rotates the alphabet so that it starts with C, and moves my
+     *  notches with it. */
+    @Override
+    public void rotateAlphabet(int c) {
+        super.rotateAlphabet(c);
+        _notchTable = buildNotchTable();
+    }
+    /** Return a table, indexed by setting, of whether I am at a notch
+     *  in my current alphabet. */
+    private boolean[] buildNotchTable() {
+        boolean[] table = new boolean[size()];
+        for (int notch : _notches.codePoints().toArray()) {
+            int k = alphabet().toInt(notch);
+            if (k >= 0) {
+                table[k] = true;
+            }
+        }
+        return table;
+    }
+    /** Return the characters at which my notches sit. */
+    String notches() {
+        return _notches;
     }
     /** A string of all notches. **/
     private String _notches;
+    /** Whether I am at a notch at each setting, built whenever my
+     *  alphabet changes and never modified, so that rotors shared
+     *  between threads may read it. **/
+    private boolean[] _notchTable;
 
 }
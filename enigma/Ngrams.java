@@ -0,0 +1,292 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static enigma.EnigmaException.*;
+
+/** The base-10 logarithms of the probabilities of the sequences of N
+ *  letters of a language, estimated from a sample of it (the corpus),
+ *  for scoring trial decryptions.  A sequence of letters with indices
+ *  C1, ..., CN is looked up at index ((C1 * size + C2) * size + ...) +
+ *  CN of a single table, so scoring a text is a loop over an int array.
+ *  A sequence that never occurs in the corpus gets the logarithm of a
+ *  hundredth of an occurrence.  Ngrams are never modified once built,
+ *  and may be shared between threads.
+ *
+ *  Tables for a large alphabet or long sequences are big, so they may
+ *  be written once to a file and then memory-mapped rather than read,
+ *  sharing the operating system's copy between processes.  A file holds,
+ *  in order: MAGIC and VERSION; the alphabet, padded to a whole number
+ *  of ints; the number of tables; and for each table its N followed by
+ *  its entries.  Every number is a little-endian int or float.  The
+ *  file is not checksummed, since that would mean reading every entry.
+ *  @author Connor Bernard
+ */
+class Ngrams {
+
+    /** Largest number of entries in a table. */
+    static final int MAX_ENTRIES = 1 << 28;
+    /** Marks the start of a file of tables. */
+    static final int MAGIC = 0x4e47524d;
+    /** Version of the format written by write. */
+    static final int VERSION = 1;
+    /** Byte order of the numbers in a file of tables. */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** The N-letter statistics of the text read from CORPUS over
+     *  ALPHABET.  Characters not in ALPHABET are taken in upper case if
+     *  that is in ALPHABET, and are otherwise skipped, so that the
+     *  letters on either side of them are counted as adjacent. */
+    Ngrams(Alphabet alphabet, int n, Reader corpus) {
+        _alphabet = alphabet;
+        _n = n;
+        int size = alphabet.size();
+        _entries = entries(size, n);
+        int[] counts = new int[_entries];
+        long total = 0;
+        int high = _entries / size;
+        int[] recent = new int[n];
+        int oldest = 0;
+        int index = 0;
+        int letters = 0;
+        try {
+            char[] block = new char[BLOCK_SIZE];
+            for (int len = corpus.read(block); len != -1;
+                 len = corpus.read(block)) {
+                for (int i = 0; i < len; i++) {
+                    int c = letter(block[i]);
+                    if (c >= 0) {
+                        if (letters == n) {
+                            index -= recent[oldest] * high;
+                        } else {
+                            letters += 1;
+                        }
+                        recent[oldest] = c;
+                        oldest = oldest + 1 == n ? 0 : oldest + 1;
+                        index = index * size + c;
+                        if (letters == n) {
+                            counts[index] += 1;
+                            total += 1;
+                        }
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not read corpus");
+        }
+        if (total == 0) {
+            throw error("corpus has no %d-letter sequences", n);
+        }
+        float[] table = new float[_entries];
+        for (int i = 0; i < _entries; i++) {
+            table[i] = (float) Math.log10(
+                Math.max(counts[i], FLOOR) / total);
+        }
+        _table = FloatBuffer.wrap(table);
+    }
+
+    /** The N-letter statistics over ALPHABET whose entries are TABLE. */
+    private Ngrams(Alphabet alphabet, int n, FloatBuffer table) {
+        _alphabet = alphabet;
+        _n = n;
+        _entries = entries(alphabet.size(), n);
+        _table = table;
+    }
+
+    /** Return the number of entries in a table of the N-letter sequences
+     *  of an alphabet of SIZE letters. */
+    private static int entries(int size, int n) {
+        if (n < 1 || Math.pow(size, n) > MAX_ENTRIES) {
+            throw error("cannot tabulate %d-letter sequences of %d letters",
+                        n, size);
+        }
+        return (int) Math.pow(size, n);
+    }
+
+    /** Return true iff the file named NAME starts with MAGIC. */
+    static boolean isCompiled(String name) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name))) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ORDER);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                continue;
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Write TABLES, which must all be over the same alphabet, to the
+     *  file named NAME. */
+    static void write(Ngrams[] tables, String name) {
+        if (tables.length == 0) {
+            throw error("no tables to write");
+        }
+        String letters = tables[0].alphabet().getAlphabetString();
+        try (FileChannel channel = FileChannel.open(Paths.get(name),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer =
+                ByteBuffer.allocate(Math.max(BUFFER_SIZE, 16 + 2
+                                             * (letters.length() + 1)))
+                .order(ORDER);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(letters.length());
+            for (int i = 0; i < letters.length(); i++) {
+                buffer.putChar(letters.charAt(i));
+            }
+            if (letters.length() % 2 != 0) {
+                buffer.putChar('\0');
+            }
+            buffer.putInt(tables.length);
+            for (Ngrams table : tables) {
+                if (!table.alphabet().getAlphabetString().equals(letters)) {
+                    throw error("tables are for different alphabets");
+                }
+                flushIfFull(channel, buffer);
+                buffer.putInt(table.n());
+                for (int i = 0; i < table._entries; i++) {
+                    flushIfFull(channel, buffer);
+                    buffer.putFloat(table._table.get(i));
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException excp) {
+            throw error("could not write %s", name);
+        }
+    }
+
+    /** Write the contents of BUFFER to CHANNEL and empty it, if it has
+     *  no room for another number. */
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer)
+        throws IOException {
+        if (buffer.remaining() < 4) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /** Return the tables in the file named NAME, memory-mapped, in the
+     *  order they were written. */
+    static Ngrams[] map(String name) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name))) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+                                            0, Math.min(size, HEADER_LIMIT))
+                .order(ORDER);
+            if (header.remaining() < 12 || header.getInt() != MAGIC) {
+                throw error("%s is not a file of n-gram tables", name);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw error("unsupported n-gram table version %d", version);
+            }
+            int length = header.getInt();
+            if (length < 0 || 2L * (length + 1) + 4 > header.remaining()) {
+                throw error("bad alphabet in %s", name);
+            }
+            char[] letters = new char[length + length % 2];
+            for (int i = 0; i < letters.length; i++) {
+                letters[i] = header.getChar();
+            }
+            Alphabet alphabet = new Alphabet(new String(letters, 0, length));
+            int count = header.getInt();
+            Ngrams[] result = new Ngrams[Math.max(count, 0)];
+            long position = header.position();
+            for (int k = 0; k < result.length; k++) {
+                if (position + 4 > size) {
+                    throw error("n-gram tables truncated");
+                }
+                int n = channel.map(FileChannel.MapMode.READ_ONLY,
+                                    position, 4).order(ORDER).getInt();
+                long bytes = 4L * entries(alphabet.size(), n);
+                if (position + 4 + bytes > size) {
+                    throw error("n-gram tables truncated");
+                }
+                FloatBuffer table =
+                    channel.map(FileChannel.MapMode.READ_ONLY, position + 4,
+                                bytes).order(ORDER).asFloatBuffer();
+                result[k] = new Ngrams(alphabet, n, table);
+                position += 4 + bytes;
+            }
+            return result;
+        } catch (IOException excp) {
+            throw error("could not read %s", name);
+        }
+    }
+
+    /** Return the index in my alphabet of CH, or of CH in upper case if
+     *  only that is in my alphabet, or -1 if neither is. */
+    private int letter(char ch) {
+        int c = _alphabet.toInt(ch);
+        if (c < 0) {
+            c = _alphabet.toInt(Character.toUpperCase(ch));
+        }
+        return c;
+    }
+
+    /** Return the alphabet whose letters I count. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the length of the sequences I count. */
+    int n() {
+        return _n;
+    }
+
+    /** Return the sum of the logarithms of the probabilities of each
+     *  sequence of n() letters in the first LEN indices of TEXT.  The
+     *  index of each sequence is rolled from that of the one before, by
+     *  removing its first letter and adding the next, without
+     *  division. */
+    double score(int[] text, int len) {
+        FloatBuffer table = _table;
+        int n = _n;
+        int size = _alphabet.size();
+        int high = _entries / size;
+        int index = 0;
+        double result = 0;
+        for (int i = 0; i < len; i++) {
+            if (i >= n) {
+                index -= text[i - n] * high;
+            }
+            index = index * size + text[i];
+            if (i >= n - 1) {
+                result += table.get(index);
+            }
+        }
+        return result;
+    }
+
+    /** Count given to sequences missing from the corpus. */
+    private static final double FLOOR = 0.01;
+    /** Characters of the corpus read at once. */
+    private static final int BLOCK_SIZE = 1 << 13;
+    /** Bytes written to a file at once. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Most bytes a file's header may occupy. */
+    private static final long HEADER_LIMIT = 1 << 20;
+
+    /** The alphabet whose letters I count. */
+    private final Alphabet _alphabet;
+    /** Length of the sequences I count. */
+    private final int _n;
+    /** Number of entries in _table: size ** _n. */
+    private final int _entries;
+    /** Logarithm of the probability of each sequence, by index, on the
+     *  heap or mapped from a file. */
+    private final FloatBuffer _table;
+}
@@ -0,0 +1,97 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Ngrams class.
+ *  @author Connor Bernard
+ */
+public class NgramsTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Text from which to count sequences. */
+    private static final String CORPUS =
+        "The quick brown fox jumps over the lazy dog; then the dog sleeps.";
+
+    /** Return the indices in UPPER of the letters of S. */
+    private int[] indices(String s) {
+        int[] result = new int[s.length()];
+        for (int i = 0; i < s.length(); i++) {
+            result[i] = UPPER.toInt(s.charAt(i));
+        }
+        return result;
+    }
+
+    @Test
+    public void checkCounts() {
+        Ngrams bigrams = new Ngrams(UPPER, 2, new StringReader(CORPUS));
+        int total = 0;
+        for (char c : CORPUS.toCharArray()) {
+            total += Character.isLetter(c) ? 1 : 0;
+        }
+        total -= 1;
+        assertEquals(Math.log10(4.0 / total),
+                     bigrams.score(indices("TH"), 2), 1e-6);
+        assertEquals(Math.log10(0.01 / total),
+                     bigrams.score(indices("QQ"), 2), 1e-6);
+        assertEquals(bigrams.score(indices("TH"), 2)
+                     + bigrams.score(indices("HE"), 2),
+                     bigrams.score(indices("THE"), 3), 1e-6);
+    }
+
+    @Test
+    public void checkRoundTrip() throws IOException {
+        Ngrams[] tables = {
+            new Ngrams(UPPER, 2, new StringReader(CORPUS)),
+            new Ngrams(UPPER, 3, new StringReader(CORPUS)),
+        };
+        File file = File.createTempFile("ngrams", ".ngr");
+        file.deleteOnExit();
+        Ngrams.write(tables, file.getPath());
+        assertTrue(Ngrams.isCompiled(file.getPath()));
+        Ngrams[] copy = Ngrams.map(file.getPath());
+        assertEquals(2, copy.length);
+        int[] text = indices("THEDOGJUMPSQXZ");
+        for (int k = 0; k < 2; k++) {
+            assertEquals(tables[k].n(), copy[k].n());
+            assertEquals(UPPER_STRING,
+                         copy[k].alphabet().getAlphabetString());
+            assertEquals(tables[k].score(text, text.length),
+                         copy[k].score(text, text.length), 0.0);
+        }
+    }
+
+    @Test
+    public void checkBadFiles() throws IOException {
+        File file = File.createTempFile("ngrams", ".ngr");
+        file.deleteOnExit();
+        Ngrams.write(new Ngrams[] {
+                new Ngrams(UPPER, 2, new StringReader(CORPUS)) },
+            file.getPath());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        try {
+            Ngrams.map(file.getPath());
+            fail("truncated tables accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(0);
+        }
+        assertFalse(Ngrams.isCompiled(file.getPath()));
+    }
+}
@@ -0,0 +1,61 @@
+package enigma;
+
+import java.util.concurrent.RecursiveAction;
+
+/** A task that converts a range of characters with copies of a machine,
+ *  splitting it in halves until the pieces are small enough to convert
+ *  sequentially.  Since the rotor positions never depend on the text,
+ *  each piece can start from a copy of the machine moved directly to
+ *  that piece's place in the stream.
+ *  @author Connor Bernard
+ */
+class ParallelConverter extends RecursiveAction {
+
+    /** Pieces no longer than this are converted by a single thread. */
+    static final int CHUNK = 1 << 16;
+
+    /** A task converting the LEN characters of IN starting at OFF into
+     *  OUT starting at OUTOFF, using the rotors of MACHINE as they stand
+     *  after POSITION characters of its current stream. */
+    ParallelConverter(Machine machine, long position, char[] in, int off,
+                      int len, char[] out, int outOff) {
+        _machine = machine;
+        _position = position;
+        _in = in;
+        _off = off;
+        _len = len;
+        _out = out;
+        _outOff = outOff;
+    }
+
+    @Override
+    protected void compute() {
+        if (_len <= CHUNK) {
+            Machine piece = _machine.copy();
+            piece.seek(_position);
+            piece.convert(_in, _off, _len, _out, _outOff);
+        } else {
+            int half = _len / 2;
+            invokeAll(new ParallelConverter(_machine, _position, _in, _off,
+                                            half, _out, _outOff),
+                      new ParallelConverter(_machine, _position + half, _in,
+                                            _off + half, _len - half, _out,
+                                            _outOff + half));
+        }
+    }
+
+    /** The machine whose copies do the conversion. */
+    private final Machine _machine;
+    /** Position in _machine's stream of the first character. */
+    private final long _position;
+    /** Characters to convert. */
+    private final char[] _in;
+    /** Index in _in of the first character. */
+    private final int _off;
+    /** Number of characters to convert. */
+    private final int _len;
+    /** Destination of the converted characters. */
+    private final char[] _out;
+    /** Index in _out of the first converted character. */
+    private final int _outOff;
+}
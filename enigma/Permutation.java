@@ -1,5 +1,7 @@
 package enigma;
 
+import java.util.Arrays;
+
 import static enigma.EnigmaException.*;
 
 /** Represents a permutation of a range of integers starting at 0 corresponding
@@ -14,33 +16,47 @@ class Permutation {
      *  alphabet that are not included in any cycle map to themselves.
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
+        Telemetry.PermutationBuilt event = null;
+        if (Telemetry.recording()) {
+            event = new Telemetry.PermutationBuilt();
+            event.begin();
+        }
         _alphabet = alphabet;
-        _cycles = cycles;
+        _forward = new int[size()];
+        _inverse = new int[size()];
+        for (int i = 0; i < size(); i++) {
+            _forward[i] = i;
+            _inverse[i] = i;
+        }
+        int[] text = cycles.codePoints().toArray();
+        boolean[] seen = new boolean[size()];
+        int[] cycle = new int[size()];
+        int cycleLength = 0;
         int openParens = 0;
         int closeParens = 0;
-        String letters = "";
-        for (int i = 0; i < cycles.length(); i++) {
-            if (cycles.charAt(i) != ' ') {
-                if (cycles.charAt(i) == '(') {
-                    if (cycles.charAt(i + 1) == ')') {
-                        throw new EnigmaException("Provided cycles imporperly"
-                               + " formatted");
-                    }
-                    openParens += 1;
-                } else if (cycles.charAt(i) == ')') {
-                    closeParens += 1;
-                } else {
-                    String letter = "" + cycles.charAt(i);
-                    if (letters.contains(letter)) {
-                        throw new EnigmaException("Letter repeated in cycle");
-                    } else if (alphabet.toInt(cycles.charAt(i)) == -1) {
-                        char a = (char) cycles.charAt(i);
-                        throw new EnigmaException("Letter in cycle not in"
-                               + " Alphabet");
-                    } else {
-                        letters += letter;
-                    }
+        for (int i = 0; i < text.length; i++) {
+            int c = text[i];
+            if (c == '(') {
+                if (i + 1 == text.length || text[i + 1] == ')') {
+                    throw new EnigmaException("Provided cycles imporperly"
+                           + " formatted");
+                }
+                openParens += 1;
+                cycleLength = 0;
+            } else if (c == ')') {
+                closeParens += 1;
+                addCycle(cycle, cycleLength);
+            } else if (c != ' ') {
+                int index = alphabet.toInt(c);
+                if (index == -1) {
+                    throw new EnigmaException("Letter in cycle not in"
+                           + " Alphabet");
+                } else if (seen[index]) {
+                    throw new EnigmaException("Letter repeated in cycle");
                 }
+                seen[index] = true;
+                cycle[cycleLength] = index;
+                cycleLength += 1;
             }
             if (openParens - closeParens == 2
                     || openParens - closeParens == -2) {
@@ -52,12 +68,57 @@ class Permutation {
                 || (openParens == 0 && !cycles.isEmpty())) {
             throw new EnigmaException("Provided cycles imporperly formatted");
         }
+        report(event);
+    }
+
+    /** Set this Permutation to the one taking each index I of ALPHABET to
+     *  FORWARD[I], which must contain every index exactly once. */
+    Permutation(int[] forward, Alphabet alphabet) {
+        Telemetry.PermutationBuilt event = null;
+        if (Telemetry.recording()) {
+            event = new Telemetry.PermutationBuilt();
+            event.begin();
+        }
+        _alphabet = alphabet;
+        if (forward.length != size()) {
+            throw new EnigmaException("Permutation table has wrong size");
+        }
+        _forward = forward.clone();
+        _inverse = new int[size()];
+        Arrays.fill(_inverse, -1);
+        for (int i = 0; i < size(); i++) {
+            int to = _forward[i];
+            if (to < 0 || to >= size() || _inverse[to] != -1) {
+                throw new EnigmaException("Table is not a permutation");
+            }
+            _inverse[to] = i;
+        }
+        report(event);
+    }
+
+    /** Commit EVENT, begun when I started to be built, unless it is
+     *  null. */
+    private void report(Telemetry.PermutationBuilt event) {
+        if (event != null) {
+            event.size = size();
+            for (int i = 0; i < size(); i++) {
+                if (_forward[i] == i) {
+                    event.fixedPoints += 1;
+                }
+            }
+            event.commit();
+        }
     }
 
-    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        _cycles += "( " + cycle + ")";
+    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where the
+     *  first LENGTH entries of CYCLE are the indices c0, c1, ..., cm. */
+    private void addCycle(int[] cycle, int length) {
+        for (int i = 0; i < length; i++) {
+            int from = cycle[i];
+            int to = cycle[(i + 1) % length];
+            _forward[from] = to;
+            _inverse[to] = from;
+        }
     }
 
     /** Return the value of P modulo the size of this permutation. */
@@ -77,42 +138,13 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        p = wrap(p);
-        int returnIndex = 0;
-        String parsed = "";
-        for (int i = 0; i < _cycles.length(); i++) {
-            if (_cycles.charAt(i) == '(') {
-                returnIndex = _alphabet.toInt(_cycles.charAt(i + 1));
-            }
-            if (_alphabet.toInt(_cycles.charAt(i)) == p) {
-                if (_cycles.charAt(i + 1) == ')') {
-                    return returnIndex;
-                } else {
-                    return _alphabet.toInt(_cycles.charAt(i + 1));
-                }
-            }
-        }
-        return p;
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        c = wrap(c);
-        int returnIndex = ' ';
-        for (int i = _cycles.length() - 1; i > 0; i--) {
-            if (_cycles.charAt(i) == ')') {
-                returnIndex = _alphabet.toInt(_cycles.charAt(i - 1));
-            }
-            if (_alphabet.toInt(_cycles.charAt(i)) == c) {
-                if (_cycles.charAt(i - 1) == '(') {
-                    return returnIndex;
-                } else {
-                    return _alphabet.toInt(_cycles.charAt(i - 1));
-                }
-            }
-        }
-        return c;
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
@@ -134,20 +166,18 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        int letterCount = 0;
-        for (int i = 0; i < _cycles.length(); i++) {
-            if (alphabet().contains(_cycles.charAt(i))) {
-                letterCount += 1;
-                if (permute(_cycles.charAt(i)) == _cycles.charAt(i)) {
-                    return false;
-                }
+        for (int i = 0; i < size(); i++) {
+            if (_forward[i] == i) {
+                return false;
             }
         }
-        return letterCount == size();
+        return true;
     }
 
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
-    /** The list of mappings of this permutation. */
-    private String _cycles;
+    /** The image of each index under this permutation. */
+    private int[] _forward;
+    /** The image of each index under the inverse of this permutation. */
+    private int[] _inverse;
 }
@@ -104,5 +104,57 @@ public class PermutationTest {
         }
         assertEquals("ighfnlr", converted);
     }
+    @Test
+    public void checkNavalTables() {
+        perm = new Permutation(NAVALA.get("I"), UPPER);
+        checkPerm("naval I", UPPER_STRING, NAVALA_MAP.get("I"));
+        perm = new Permutation(NAVALZ.get("VII"), UPPER);
+        checkPerm("naval VII (Z)", UPPER_STRING, NAVALZ_MAP.get("VII"));
+    }
+    @Test
+    public void checkDerangement() {
+        assertTrue(new Permutation(NAVALA.get("B"), UPPER).derangement());
+        assertFalse(new Permutation(NAVALA.get("I"), UPPER).derangement());
+        assertFalse(new Permutation("(AB)", UPPER).derangement());
+    }
+    @Test
+    public void checkSupplementary() {
+        Alphabet alphabet = new Alphabet("ab\ud840\udc00\ud840\udc01");
+        Permutation testPerm =
+            new Permutation("(a\ud840\udc00) (b\ud840\udc01)", alphabet);
+        assertEquals(4, testPerm.size());
+        assertEquals(2, testPerm.permute(0));
+        assertEquals(0, testPerm.permute(2));
+        assertEquals(3, testPerm.invert(1));
+        assertTrue(testPerm.derangement());
+    }
+    @Test
+    public void checkLargeCycle() {
+        int size = 30000;
+        int[] codePoints = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            codePoints[i] = 0x4e00 + i;
+        }
+        Alphabet alphabet = new Alphabet(new String(codePoints, 0, size));
+        Permutation testPerm = new Permutation(
+            "(" + new String(codePoints, 0, size) + ")", alphabet);
+        for (int i = 0; i < size; i += 1) {
+            assertEquals((i + 1) % size, testPerm.permute(i));
+            assertEquals(i, testPerm.invert((i + 1) % size));
+        }
+    }
+    @Test
+    public void checkBadCycles() {
+        String[] bad = {"(AB) (BC)", "(A1)", "(AB", "()", "(AB) (",
+                        "((AB))"};
+        for (String cycles : bad) {
+            try {
+                new Permutation(cycles, UPPER);
+                fail("accepted " + cycles);
+            } catch (EnigmaException excp) {
+                /* Expected. */
+            }
+        }
+    }
 
 }
@@ -0,0 +1,207 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** A search for the plugboard of a message whose rotor order, ring
+ *  settings and starting position are known, by hill-climbing: starting
+ *  from some plugboard, each change of the plugs of two letters is
+ *  tried in turn and kept if it makes the decryption read more like the
+ *  language, until no change does.  The decryption is scored in stages
+ *  by a series of Ngrams, each climb continuing from where the last
+ *  left off, so that short sequences, which are still informative when
+ *  few plugs are right, guide the early moves.  The first climb starts
+ *  from the machine's own plugboard and the others from random ones;
+ *  they run in parallel and the best final score wins.
+ *
+ *  With the rotors fixed, keystroke T applies the plugboard, then a
+ *  fixed permutation S_T of the rotors and reflector, then the
+ *  plugboard again.  The S_T are computed once, so each trial
+ *  decryption is a pair of table lookups per letter.
+ *  @author Connor Bernard
+ */
+class PlugboardSearch {
+
+    /** A search for the plugboard of MACHINE, whose rotors are at the
+     *  start of CIPHERTEXT, ignoring blanks, scoring decryptions with
+     *  each of STAGES in turn, from RESTARTS starting plugboards, all
+     *  but the first drawn at random from SEED.  MACHINE is left as it
+     *  was. */
+    PlugboardSearch(Machine machine, String ciphertext, Ngrams[] stages,
+                    int restarts, long seed) {
+        _alphabet = machine.spec().alphabet();
+        _size = _alphabet.size();
+        String text = ciphertext.replace(" ", "");
+        if (text.isEmpty()) {
+            throw error("empty message");
+        }
+        if (stages.length == 0) {
+            throw error("no statistics to score with");
+        }
+        for (Ngrams stage : stages) {
+            if (!stage.alphabet().getAlphabetString()
+                    .equals(_alphabet.getAlphabetString())) {
+                throw error("statistics are for a different alphabet");
+            }
+        }
+        if (restarts < 1) {
+            throw error("must climb at least once");
+        }
+        _cipher = new int[text.length()];
+        for (int i = 0; i < text.length(); i++) {
+            _cipher[i] = _alphabet.toInt(text.charAt(i));
+            if (_cipher[i] < 0) {
+                throw error("character %c not in alphabet", text.charAt(i));
+            }
+        }
+        _initial = new int[_size];
+        for (int c = 0; c < _size; c++) {
+            _initial[c] = machine.plugboard().permute(c);
+            if (machine.plugboard().permute(_initial[c]) != c) {
+                throw error("plugboard is not a set of swaps");
+            }
+        }
+        _scramblers = machine.scramblers(_cipher.length);
+        _stages = stages.clone();
+        _restarts = restarts;
+        _seed = seed;
+    }
+
+    /** Return the best plugboard found, searching on all the threads of
+     *  the common ForkJoinPool. */
+    Solution search() {
+        return ForkJoinPool.commonPool().invoke(
+            new PlugboardTask(this, 0, _restarts));
+    }
+
+    /** Return the plugboard from which climb RESTART starts, with each
+     *  letter's index mapped to its partner's. */
+    int[] start(int restart) {
+        if (restart == 0) {
+            return _initial.clone();
+        }
+        Random random = new Random(_seed + restart);
+        int[] letters = new int[_size];
+        for (int c = 0; c < _size; c++) {
+            letters[c] = c;
+        }
+        for (int c = _size - 1; c > 0; c--) {
+            int k = random.nextInt(c + 1);
+            int tmp = letters[c];
+            letters[c] = letters[k];
+            letters[k] = tmp;
+        }
+        int[] result = new int[_size];
+        for (int c = 0; c < _size; c++) {
+            result[c] = c;
+        }
+        for (int k = 2 * random.nextInt(_size / 2 + 1) - 1; k > 0; k -= 2) {
+            result[letters[k]] = letters[k - 1];
+            result[letters[k - 1]] = letters[k];
+        }
+        return result;
+    }
+
+    /** Decipher the message with each letter's index plugged to
+     *  PARTNER's entry for it, placing the result in PLAIN. */
+    void decipher(int[] partner, int[] plain) {
+        int[] cipher = _cipher;
+        int[] scramblers = _scramblers;
+        int size = _size;
+        int row = 0;
+        for (int t = 0; t < cipher.length; t++) {
+            plain[t] = partner[scramblers[row + partner[cipher[t]]]];
+            row += size;
+        }
+    }
+
+    /** Return the cycles of the plugboard taking each letter's index to
+     *  PARTNER's entry for it, in the form of a settings line. */
+    String plugs(int[] partner) {
+        StringBuilder result = new StringBuilder();
+        for (int a = 0; a < _size; a++) {
+            if (partner[a] > a) {
+                result.append(result.length() == 0 ? "(" : " (")
+                    .append(_alphabet.toChar(a))
+                    .append(_alphabet.toChar(partner[a])).append(')');
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return the size of the alphabet. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the number of letters in the message. */
+    int length() {
+        return _cipher.length;
+    }
+
+    /** Return the statistics with which each stage of a climb scores
+     *  decryptions. */
+    Ngrams[] stages() {
+        return _stages;
+    }
+
+    /** A plugboard and the score of the decryption under it. */
+    static final class Solution {
+
+        /** A solution found by climb RESTART, whose decryption has SCORE
+         *  and whose plugboard has cycles PLUGS. */
+        Solution(int restart, double score, String plugs) {
+            _restart = restart;
+            _score = score;
+            _plugs = plugs;
+        }
+
+        /** Return whichever of me and OTHER has the higher score, or came
+         *  from the earlier climb if they score the same. */
+        Solution better(Solution other) {
+            if (other._score > _score
+                || other._score == _score && other._restart < _restart) {
+                return other;
+            }
+            return this;
+        }
+
+        /** Return the score of the decryption by the last stage's
+         *  statistics. */
+        double score() {
+            return _score;
+        }
+
+        /** Return the plugboard cycles, as in a settings line. */
+        String plugs() {
+            return _plugs;
+        }
+
+        /** Index of the climb that found me. */
+        private final int _restart;
+        /** Score of the decryption. */
+        private final double _score;
+        /** Plugboard cycles. */
+        private final String _plugs;
+    }
+
+    /** The alphabet of the machine. */
+    private final Alphabet _alphabet;
+    /** The size of _alphabet. */
+    private final int _size;
+    /** Indices of the ciphertext characters. */
+    private final int[] _cipher;
+    /** The machine's plugboard, mapping each index to its partner's. */
+    private final int[] _initial;
+    /** The permutation applied by the rotors and reflector on each
+     *  keystroke, in rows of _size entries. */
+    private final int[] _scramblers;
+    /** Statistics for each stage of a climb. */
+    private final Ngrams[] _stages;
+    /** Number of climbs. */
+    private final int _restarts;
+    /** Seed from which the random starting plugboards are drawn. */
+    private final long _seed;
+}
@@ -0,0 +1,104 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the PlugboardSearch class.
+ *  @author Connor Bernard
+ */
+public class PlugboardSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Text in the language of the messages. */
+    private static final String CORPUS =
+        "It was the best of times, it was the worst of times, it was the "
+        + "age of wisdom, it was the age of foolishness, it was the epoch "
+        + "of belief, it was the epoch of incredulity, it was the season "
+        + "of Light, it was the season of Darkness, it was the spring of "
+        + "hope, it was the winter of despair, we had everything before "
+        + "us, we had nothing before us, we were all going direct to "
+        + "Heaven, we were all going direct the other way.  The enemy "
+        + "has been seen moving along the northern river this morning "
+        + "and an attack on the bridge is expected before nightfall.";
+
+    /** A message in the language of CORPUS. */
+    private static final String PLAIN =
+        "THEENEMYHASBEENSEENALONGTHERIVERANDWEEXPECTANATTACKONTHEBRIDGE"
+        + "BEFORENIGHTFALLITWASTHESEASONOFDARKNESSANDTHEWINTEROFDESPAIR"
+        + "WEHADNOTHINGBEFOREUSANDWEWEREALLGOINGDIRECTTHEOTHERWAY";
+
+    /** Return a machine with three of the naval rotors and reflector
+     *  B, set to SETTING with PLUGS. */
+    private Machine machine(String setting, String plugs) {
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("II",
+                new Permutation(NAVALA.get("II"), UPPER), "E"));
+        rotors.add(new MovingRotor("III",
+                new Permutation(NAVALA.get("III"), UPPER), "V"));
+        rotors.add(new Reflector("B",
+                new Permutation(NAVALA.get("B"), UPPER)));
+        Machine machine = new Machine(UPPER, 4, 3, rotors);
+        machine.insertRotors(new String[] {"B", "III", "I", "II"});
+        machine.setRotors(setting);
+        machine.setPlugboard(new Permutation(plugs, UPPER));
+        return machine;
+    }
+
+    /** Return statistics of the N-letter sequences of CORPUS. */
+    private Ngrams ngrams(int n) {
+        return new Ngrams(UPPER, n, new StringReader(CORPUS));
+    }
+
+    @Test
+    public void findsPlugboard() {
+        String plugs = "(AM) (BQ) (CR) (FI) (NV) (PS) (TU) (WZ)";
+        String cipher = machine("XEW", plugs).convert(PLAIN);
+        Machine machine = machine("XEW", "");
+        Ngrams[] stages = {ngrams(2), ngrams(3), ngrams(4)};
+        PlugboardSearch.Solution best =
+            new PlugboardSearch(machine, cipher, stages, 4, 1).search();
+        assertEquals(plugs, best.plugs());
+        assertEquals(machine("XEW", "").convert(PLAIN),
+                     machine.convert(PLAIN));
+    }
+
+    @Test
+    public void scoresText() {
+        Ngrams bigrams = ngrams(2);
+        int[] common = {UPPER.toInt('T'), UPPER.toInt('H'), UPPER.toInt('E')};
+        int[] rare = {UPPER.toInt('Q'), UPPER.toInt('X'), UPPER.toInt('Z')};
+        assertTrue(bigrams.score(common, 3) > bigrams.score(rare, 3));
+        assertEquals(0.0, bigrams.score(common, 1), 0.0);
+        assertEquals(2 * bigrams.score(rare, 2), bigrams.score(rare, 3),
+                     1e-6);
+    }
+
+    @Test
+    public void rejectsBadInput() {
+        Ngrams[] stages = {ngrams(2)};
+        try {
+            new PlugboardSearch(machine("AAA", ""), "AB1", stages, 1, 0);
+            fail("character outside the alphabet accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+        try {
+            new Ngrams(UPPER, 2, new StringReader("A"));
+            fail("corpus without sequences accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+}
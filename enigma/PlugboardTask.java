@@ -0,0 +1,123 @@
+package enigma;
+
+import java.util.concurrent.RecursiveTask;
+
+import enigma.PlugboardSearch.Solution;
+
+/** A task that runs the climbs of a PlugboardSearch numbered FROM to
+ *  TO - 1, splitting the range in halves until single climbs remain,
+ *  and returns the best plugboard any of them found.
+ *  @author Connor Bernard
+ */
+class PlugboardTask extends RecursiveTask<Solution> {
+
+    /** A task running climbs FROM to TO - 1 of SEARCH. */
+    PlugboardTask(PlugboardSearch search, int from, int to) {
+        _search = search;
+        _from = from;
+        _to = to;
+    }
+
+    @Override
+    protected Solution compute() {
+        if (_to - _from > 1) {
+            int mid = (_from + _to) >>> 1;
+            PlugboardTask right = new PlugboardTask(_search, mid, _to);
+            right.fork();
+            Solution left = new PlugboardTask(_search, _from, mid).compute();
+            return left.better(right.join());
+        }
+        _partner = _search.start(_from);
+        _plain = new int[_search.length()];
+        for (Ngrams stage : _search.stages()) {
+            climb(stage);
+        }
+        return new Solution(_from, _score, _search.plugs(_partner));
+    }
+
+    /** Change _partner one move at a time while that improves the score
+     *  of the decryption by STAGE, leaving the final score in _score. */
+    private void climb(Ngrams stage) {
+        _stage = stage;
+        _score = score();
+        int size = _search.size();
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int a = 0; a < size; a++) {
+                for (int b = a + 1; b < size; b++) {
+                    improved |= move(a, b);
+                }
+            }
+        }
+    }
+
+    /** Try each other way of plugging letters A and B and their current
+     *  partners, keeping the first that scores better, and return true
+     *  iff one did. */
+    private boolean move(int a, int b) {
+        int x = _partner[a];
+        int y = _partner[b];
+        if (x == b) {
+            return attempt(a, b, a, a, b, b);
+        } else if (x == a && y == b) {
+            return attempt(a, b, a, b, a, b);
+        } else if (y == b) {
+            return attempt(a, b, a, b, x, x) || attempt(a, b, x, b, a, a);
+        } else if (x == a) {
+            return attempt(a, b, a, b, y, y) || attempt(a, b, a, y, b, b);
+        } else {
+            return attempt(a, b, a, b, x, y) || attempt(a, b, a, y, b, x);
+        }
+    }
+
+    /** Unplug A, B and their partners, then plug P to Q and R to S (a
+     *  letter plugged to itself is unplugged), keeping the result and
+     *  returning true if it scores better than before, and otherwise
+     *  restoring the plugboard and returning false. */
+    private boolean attempt(int a, int b, int p, int q, int r, int s) {
+        int[] partner = _partner;
+        int x = partner[a];
+        int y = partner[b];
+        partner[x] = x;
+        partner[y] = y;
+        partner[a] = a;
+        partner[b] = b;
+        partner[p] = q;
+        partner[q] = p;
+        partner[r] = s;
+        partner[s] = r;
+        double score = score();
+        if (score > _score) {
+            _score = score;
+            return true;
+        }
+        partner[a] = x;
+        partner[x] = a;
+        partner[b] = y;
+        partner[y] = b;
+        return false;
+    }
+
+    /** Return the score by _stage of the decryption under _partner. */
+    private double score() {
+        _search.decipher(_partner, _plain);
+        return _stage.score(_plain, _plain.length);
+    }
+
+    /** The search being run. */
+    private final PlugboardSearch _search;
+    /** First climb. */
+    private final int _from;
+    /** Climb after the last. */
+    private final int _to;
+
+    /** Partner of each letter on the plugboard being climbed. */
+    private int[] _partner;
+    /** The decryption under _partner. */
+    private int[] _plain;
+    /** Statistics of the current stage. */
+    private Ngrams _stage;
+    /** Score of the decryption under _partner by _stage. */
+    private double _score;
+}
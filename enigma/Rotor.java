@@ -5,7 +5,7 @@ import static enigma.EnigmaException.*;
 /** Superclass that represents a rotor in the enigma machine.
  *  @author Connor Bernard
  */
-class Rotor {
+class Rotor implements Cloneable {
 
     /** A rotor named NAME whose permutation is given by PERM. */
     Rotor(String name, Permutation perm) {
@@ -16,6 +16,23 @@ class Rotor {
         }
         _permutation = perm;
         _alphabet = perm.alphabet();
+        if (size() <= TABLE_LIMIT) {
+            bakeTables();
+        }
+    }
+
+    /** Precompute my forward and backward conversions at every setting
+     *  into flat tables indexed by SETTING * size() + P. */
+    private void bakeTables() {
+        int n = size();
+        _forwardTable = new int[n * n];
+        _backwardTable = new int[n * n];
+        for (int k = 0; k < n; k++) {
+            for (int p = 0; p < n; p++) {
+                _forwardTable[k * n + p] = convertForward(p, k);
+                _backwardTable[k * n + p] = convertBackward(p, k);
+            }
+        }
     }
 
     /** Return my name. */
@@ -56,6 +73,7 @@ class Rotor {
     /** Set setting() to POSN.  */
     void set(int posn) {
         _setting = permutation().wrap(posn);
+        _offset = _setting * size();
     }
 
     /** Set setting() to character CPOSN. */
@@ -66,41 +84,75 @@ class Rotor {
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        return permutation().wrap(
-                permutation().permute(p + setting()) - setting());
+        if (_forwardTable != null) {
+            return _forwardTable[_offset + p];
+        }
+        return convertForward(p, setting());
+    }
+
+    /** Return the conversion of P (an integer in the range 0..size()-1)
+     *  according to my permutation when I am at setting POSN. */
+    int convertForward(int p, int posn) {
+        return permutation().wrap(permutation().permute(p + posn) - posn);
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        return permutation().wrap(
-                permutation().invert(e + setting()) - setting());
+        if (_backwardTable != null) {
+            return _backwardTable[_offset + e];
+        }
+        return convertBackward(e, setting());
+    }
+
+    /** Return the conversion of E (an integer in the range 0..size()-1)
+     *  according to the inverse of my permutation when I am at setting
+     *  POSN. */
+    int convertBackward(int e, int posn) {
+        return permutation().wrap(permutation().invert(e + posn) - posn);
     }
 
     /** Returns true iff I am positioned to allow the rotor to my left
      *  to advance. */
     boolean atNotch() {
+        return atNotch(setting());
+    }
+
+    /** Returns true iff I would allow the rotor to my left to advance
+     *  when at setting POSN. */
+    boolean atNotch(int posn) {
         return false;
     }
 
+    /** Return a table, indexed by setting, of whether I would allow the
+     *  rotor to my left to advance, or null if I never would.  The table
+     *  must not be modified. */
+    boolean[] notchTable() {
+        return null;
+    }
+
     /** Advance me one position, if possible. By default, does nothing. */
     void advance() {
     }
     /** Rotates the alphabet to the specified setting.
-     * @param c = first character of the new alphabet */
-    public void rotateAlphabet(char c) {
-        String currAlphabet = _alphabet.getAlphabetString();
-        int letterIndex;
-        for (int i = 0; i < currAlphabet.length(); i++) {
-            if (currAlphabet.charAt(i) == c) {
-                letterIndex = i;
-                currAlphabet = currAlphabet.substring(i)
-                        + currAlphabet.substring(0, i);
-                break;
-            }
+     * @param c = first code point of the new alphabet */
+    public void rotateAlphabet(int c) {
+        int index = _alphabet.toInt(c);
+        if (index > 0) {
+            _alphabet = _alphabet.rotated(index);
         }
-        _alphabet = new Alphabet(currAlphabet);
     }
+
+    /** Return a rotor with my name, wiring, notches and ring setting,
+     *  at my current setting, that can be moved independently of me. */
+    Rotor copy() {
+        try {
+            return (Rotor) clone();
+        } catch (CloneNotSupportedException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+
     @Override
     public String toString() {
         return "Rotor " + _name;
@@ -114,5 +166,14 @@ class Rotor {
     private Permutation _permutation;
     /** the setting for this rotor. **/
     private int _setting;
+    /** The start of the row for my current setting in the tables. **/
+    private int _offset;
+    /** Largest alphabet for which the per-setting tables are built;
+     *  beyond it the size() * size() tables grow too large. **/
+    static final int TABLE_LIMIT = 256;
+    /** convertForward at each setting, or null if not precomputed. **/
+    private int[] _forwardTable;
+    /** convertBackward at each setting, or null if not precomputed. **/
+    private int[] _backwardTable;
 
 }
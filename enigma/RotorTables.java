@@ -0,0 +1,79 @@
+package enigma;
+
+/** The wiring and notches of the rotors of one rotor order, tabulated at
+ *  every setting for the key searches, which step and convert through
+ *  them rather than through Rotor objects.  Tables are indexed by
+ *  setting * size + input.
+ *  @author Connor Bernard
+ */
+class RotorTables {
+
+    /** Tables for the rotors of SPEC named by ORDER, in slot order. */
+    RotorTables(MachineSpec spec, String[] order) {
+        _size = spec.alphabet().size();
+        _slots = order.length;
+        _forward = new int[_slots][];
+        _backward = new int[_slots][];
+        _notch = new boolean[_slots][];
+        _rotates = new boolean[_slots];
+        for (int i = 0; i < _slots; i++) {
+            Rotor rotor = spec.rotors().get(order[i]);
+            _rotates[i] = rotor.rotates();
+            _notch[i] = new boolean[2 * _size];
+            int settings = rotor.reflecting() ? 1 : _size;
+            _forward[i] = new int[settings * _size];
+            _backward[i] = new int[settings * _size];
+            for (int k = 0; k < _size; k++) {
+                _notch[i][k] = rotor.atNotch(k);
+                _notch[i][k + _size] = _notch[i][k];
+            }
+            for (int k = 0; k < settings; k++) {
+                for (int c = 0; c < _size; c++) {
+                    _forward[i][k * _size + c] = rotor.convertForward(c, k);
+                    _backward[i][k * _size + c] =
+                        rotor.convertBackward(c, k);
+                }
+            }
+        }
+    }
+
+    /** Return the number of slots. */
+    int slots() {
+        return _slots;
+    }
+
+    /** Return each slot's rotor forward. */
+    int[][] forward() {
+        return _forward;
+    }
+
+    /** Return each slot's rotor backward. */
+    int[][] backward() {
+        return _backward;
+    }
+
+    /** Return whether each slot's rotor is at a notch at each setting.
+     *  Each row holds two turns of the rotor, so that it may be indexed
+     *  by a setting plus a ring offset. */
+    boolean[][] notch() {
+        return _notch;
+    }
+
+    /** Return whether each slot's rotor moves. */
+    boolean[] rotates() {
+        return _rotates;
+    }
+
+    /** Size of the alphabet. */
+    private final int _size;
+    /** Number of slots. */
+    private final int _slots;
+    /** Each slot's rotor forward. */
+    private final int[][] _forward;
+    /** Each slot's rotor backward. */
+    private final int[][] _backward;
+    /** Whether each slot's rotor is at a notch at each setting. */
+    private final boolean[][] _notch;
+    /** Whether each slot's rotor moves. */
+    private final boolean[] _rotates;
+}
@@ -0,0 +1,77 @@
+package enigma;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A bounded cache of the parts of a settings line that are costly to
+ *  check and build: the arrangement of rotors, checked for duplicates,
+ *  and the plugboard.  They are keyed by the rotor names and plugboard
+ *  cycles of the line, so that lines differing only in rotor or ring
+ *  settings share an entry.  When full, the least recently used entry
+ *  is dropped.
+ *  @author Connor Bernard
+ */
+class SettingsCache {
+
+    /** A cache holding at most CAPACITY entries. */
+    SettingsCache(int capacity) {
+        _entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> e) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Return the key for a settings line naming ROTORS, in order, with
+     *  plugboard cycles PLUGS. */
+    static String key(CharSequence rotors, CharSequence plugs) {
+        return new StringBuilder(rotors.length() + plugs.length() + 1)
+            .append(rotors).append('\n').append(plugs).toString();
+    }
+
+    /** Return the entry for KEY, or null if there is none. */
+    Entry get(String key) {
+        return _entries.get(key);
+    }
+
+    /** Record that KEY names the checked arrangement ROTORS and the
+     *  plugboard PLUGBOARD. */
+    void put(String key, String[] rotors, Permutation plugboard) {
+        _entries.put(key, new Entry(rotors, plugboard));
+    }
+
+    /** Return the number of entries. */
+    int size() {
+        return _entries.size();
+    }
+
+    /** A checked arrangement of rotors and its plugboard. */
+    static final class Entry {
+
+        /** An entry for ROTORS with PLUGBOARD. */
+        Entry(String[] rotors, Permutation plugboard) {
+            _rotors = rotors;
+            _plugboard = plugboard;
+        }
+
+        /** Return the names of the rotors, by slot.  The array must not
+         *  be modified. */
+        String[] rotors() {
+            return _rotors;
+        }
+
+        /** Return the plugboard. */
+        Permutation plugboard() {
+            return _plugboard;
+        }
+
+        /** Names of the rotors, by slot. */
+        private final String[] _rotors;
+        /** The plugboard. */
+        private final Permutation _plugboard;
+    }
+
+    /** The entries, least recently used first. */
+    private final LinkedHashMap<String, Entry> _entries;
+}
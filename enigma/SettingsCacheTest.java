@@ -0,0 +1,44 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the SettingsCache class.
+ *  @author Connor Bernard
+ */
+public class SettingsCacheTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    @Test
+    public void checkKeys() {
+        assertEquals(SettingsCache.key("B Beta I II III", "(AB) "),
+                     SettingsCache.key(new StringBuilder("B Beta I II III"),
+                                       new StringBuilder("(AB) ")));
+        assertFalse(SettingsCache.key("B Beta I II III", "")
+                    .equals(SettingsCache.key("B Beta I III II", "")));
+        assertFalse(SettingsCache.key("B I", "(AB) ")
+                    .equals(SettingsCache.key("B I (AB)", "")));
+    }
+
+    @Test
+    public void checkEviction() {
+        SettingsCache cache = new SettingsCache(2);
+        Permutation plugs = new Permutation("(AB)", UPPER);
+        String[] rotors = {"B", "I", "II"};
+        cache.put("one", rotors, plugs);
+        cache.put("two", rotors, plugs);
+        assertSame(rotors, cache.get("one").rotors());
+        cache.put("three", rotors, plugs);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("two"));
+        assertSame(plugs, cache.get("one").plugboard());
+        assertNotNull(cache.get("three"));
+    }
+}
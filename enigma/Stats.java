@@ -0,0 +1,152 @@
+package enigma;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+/** Wall time and allocation spent in each stage of a run of Main,
+ *  with counts of the work done, for the --stats option.  A disabled
+ *  Stats ignores every call, so callers need not test for it.
+ *  @author Connor Bernard
+ */
+class Stats {
+
+    /** Stage reading the configuration. */
+    static final int CONFIG = 0;
+    /** Stage setting up the machine from settings lines. */
+    static final int SETUP = 1;
+    /** Stage converting message characters. */
+    static final int CONVERT = 2;
+    /** Stage grouping and writing converted characters. */
+    static final int GROUPING = 3;
+
+    /** Names of the stages, indexed by stage. */
+    private static final String[] STAGE_NAMES = {
+        "config", "setUp", "convert", "grouping",
+    };
+
+    /** Statistics that are recorded iff ENABLED, starting now. */
+    Stats(boolean enabled) {
+        _enabled = enabled;
+        if (enabled) {
+            java.lang.management.ThreadMXBean bean =
+                ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported()
+                        && threads.isThreadAllocatedMemoryEnabled()) {
+                    _threads = threads;
+                }
+            }
+            _startTime = System.nanoTime();
+            _startBytes = allocated();
+        }
+    }
+
+    /** Return true iff I record anything. */
+    boolean enabled() {
+        return _enabled;
+    }
+
+    /** Begin timing STAGE, which must not already be running. */
+    void start(int stage) {
+        if (_enabled) {
+            _stageBytes[stage] -= allocated();
+            _stageTime[stage] -= System.nanoTime();
+        }
+    }
+
+    /** Finish timing STAGE, which must have been started. */
+    void stop(int stage) {
+        if (_enabled) {
+            _stageTime[stage] += System.nanoTime();
+            _stageBytes[stage] += allocated();
+        }
+    }
+
+    /** Record the processing of a settings line, whose rotors and
+     *  plugboard were found in the cache iff CACHED. */
+    void countSettings(boolean cached) {
+        _settingsLines += 1;
+        _cachedSettings += cached ? 1 : 0;
+    }
+
+    /** Record the conversion of a message line of LENGTH characters. */
+    void countMessage(long length) {
+        _messages += 1;
+        _characters += length;
+    }
+
+    /** Return the number of bytes allocated so far by this thread, or 0
+     *  if that is not available. */
+    private long allocated() {
+        return _threads == null ? 0 : _threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /** Print the breakdown of the run so far on OUT. */
+    void report(PrintStream out) {
+        if (!_enabled) {
+            return;
+        }
+        long totalTime = System.nanoTime() - _startTime;
+        long totalBytes = allocated() - _startBytes;
+        long otherTime = totalTime;
+        long otherBytes = totalBytes;
+        out.printf("%-10s %12s %14s%n", "stage", "time (ms)",
+                   _threads == null ? "" : "allocated (KB)");
+        for (int i = 0; i < STAGE_NAMES.length; i++) {
+            printStage(out, STAGE_NAMES[i], _stageTime[i], _stageBytes[i]);
+            otherTime -= _stageTime[i];
+            otherBytes -= _stageBytes[i];
+        }
+        printStage(out, "other", otherTime, otherBytes);
+        printStage(out, "total", totalTime, totalBytes);
+        out.printf("settings lines: %d (%d cached)%n", _settingsLines,
+                   _cachedSettings);
+        out.printf("messages: %d%n", _messages);
+        out.printf("characters: %d (%.0f/s overall, %.0f/s converting)%n",
+                   _characters, rate(_characters, totalTime),
+                   rate(_characters, _stageTime[CONVERT]));
+    }
+
+    /** Return COUNT per second of TIME nanoseconds, or 0 if no time was
+     *  measured. */
+    private static double rate(long count, long time) {
+        if (time <= 0) {
+            return 0;
+        }
+        return count / (time / 1e9);
+    }
+
+    /** Print one row of the breakdown, for a stage NAME that took TIME
+     *  nanoseconds and allocated BYTES bytes, on OUT. */
+    private void printStage(PrintStream out, String name, long time,
+                            long bytes) {
+        if (_threads == null) {
+            out.printf("%-10s %12.3f%n", name, time / 1e6);
+        } else {
+            out.printf("%-10s %12.3f %14d%n", name, time / 1e6, bytes / 1024);
+        }
+    }
+
+    /** True iff I record anything. */
+    private final boolean _enabled;
+    /** Source of allocation counts, or null if they are unavailable. */
+    private com.sun.management.ThreadMXBean _threads;
+    /** Value of System.nanoTime() when I was created. */
+    private long _startTime;
+    /** Value of allocated() when I was created. */
+    private long _startBytes;
+    /** Nanoseconds spent in each stage. */
+    private final long[] _stageTime = new long[STAGE_NAMES.length];
+    /** Bytes allocated in each stage. */
+    private final long[] _stageBytes = new long[STAGE_NAMES.length];
+    /** Number of settings lines processed. */
+    private long _settingsLines;
+    /** Number of settings lines whose rotors and plugboard were cached. */
+    private long _cachedSettings;
+    /** Number of message lines converted. */
+    private long _messages;
+    /** Number of characters converted. */
+    private long _characters;
+}
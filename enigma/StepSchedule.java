@@ -0,0 +1,196 @@
+package enigma;
+
+/** Computes where the rotors of a machine stand after an arbitrary
+ *  number of keystrokes without stepping through them one at a time.
+ *
+ *  The rightmost rotor moves on every keystroke.  Each rotor to its left
+ *  moves when the rotor to its right is at a notch (a carry) or, if the
+ *  rotor to its own left also rotates, when it is itself at a notch (the
+ *  double step).  Such a rotor therefore rests on each notch for exactly
+ *  one keystroke, so the keystrokes at which it is at a notch can be
+ *  counted, and the k-th of them located, from the same quantities for
+ *  the rotor to its right.  This holds as long as none of those rotors
+ *  has notches at two adjacent positions and the rotating rotors sit
+ *  together at the right; otherwise exact() is false and the caller must
+ *  step the rotors itself.
+ *
+ *  The time taken does not depend on the number of keystrokes, but it
+ *  is not linear in the number of rotors.  Whether a double-stepping
+ *  rotor's move on its own notch coincides with a carry depends on the
+ *  keystroke of one particular carry from the rotor to its right, and
+ *  finding that keystroke means going back through every rotor further
+ *  right (carryTime).  Each rotor's count of carries is also taken one
+ *  keystroke earlier than the count of the rotor it feeds, so the
+ *  counts for neighbouring slots cannot be shared.  Fixing every slot
+ *  therefore costs up to the cube of the number of rotating rotors.
+ *  There are rarely more than four or five, so this is a few hundred
+ *  table lookups.
+ *  @author Connor Bernard
+ */
+class StepSchedule {
+
+    /** A schedule for ROTORS, the slots of a machine, starting from
+     *  the settings in ORIGIN. */
+    StepSchedule(Rotor[] rotors, int[] origin) {
+        _size = rotors[0].size();
+        _last = rotors.length - 1;
+        _start = origin.clone();
+        _first = rotors.length;
+        while (_first > 0 && rotors[_first - 1].rotates()) {
+            _first -= 1;
+        }
+        _notch = new boolean[rotors.length][];
+        _prefix = new int[rotors.length][];
+        _notchList = new int[rotors.length][];
+        _openList = new int[rotors.length][];
+        _doubleSteps = new boolean[rotors.length];
+        _exact = true;
+        for (int i = 0; i < _first; i++) {
+            if (rotors[i].rotates()) {
+                _exact = false;
+            }
+        }
+        for (int i = _first; i <= _last; i++) {
+            _doubleSteps[i] = i > 0 && rotors[i - 1].rotates();
+            _notch[i] = new boolean[_size];
+            _prefix[i] = new int[_size + 1];
+            for (int k = 0; k < _size; k++) {
+                _notch[i][k] = rotors[i].atNotch(k);
+                _prefix[i][k + 1] = _prefix[i][k] + (_notch[i][k] ? 1 : 0);
+            }
+            _notchList[i] = new int[_prefix[i][_size]];
+            _openList[i] = new int[_size - _prefix[i][_size]];
+            int n = 0;
+            int o = 0;
+            for (int k = 0; k < _size; k++) {
+                if (!_notch[i][k]) {
+                    _openList[i][o] = k;
+                    o += 1;
+                } else {
+                    _notchList[i][n] = k;
+                    n += 1;
+                    if (_doubleSteps[i] && _notch[i][(k + 1) % _size]) {
+                        _exact = false;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Return true iff positions() may be used for these rotors. */
+    boolean exact() {
+        return _exact;
+    }
+
+    /** Fill SETTINGS with the setting of each slot after KEYSTROKES
+     *  keystrokes.  Requires exact(). */
+    void positions(long keystrokes, int[] settings) {
+        for (int i = 0; i <= _last; i++) {
+            settings[i] = _start[i];
+            if (i >= _first) {
+                settings[i] = (int) ((_start[i] + steps(i, keystrokes))
+                                     % _size);
+            }
+        }
+    }
+
+    /** Return the number of times the rotor in slot I moves between
+     *  keystroke FROM and keystroke TO.  Requires exact(). */
+    long moves(int i, long from, long to) {
+        if (i < _first) {
+            return 0;
+        }
+        return steps(i, to) - steps(i, from);
+    }
+
+    /** Return the number of times the rotor in slot I moves during the
+     *  first T keystrokes. */
+    private long steps(int i, long t) {
+        if (t <= 0) {
+            return 0;
+        } else if (i == _last) {
+            return t;
+        } else if (!_doubleSteps[i]) {
+            return carries(i + 1, t);
+        }
+        int s = _start[i];
+        long skip = _notch[i][s] && carries(i + 1, 1) > 0 ? 1 : 0;
+        long k = Math.max(0, carries(i + 1, t) - skip);
+        long result = offset(i, s, k + 1, false);
+        if (k > 0 && _notch[i][(int) ((s + result - 1) % _size)]
+                && carryTime(i + 1, k + skip) + 1 >= t) {
+            result -= 1;
+        }
+        return result;
+    }
+
+    /** Return the number of the first T keystrokes at which the rotor in
+     *  slot I is at a notch. */
+    private long carries(int i, long t) {
+        if (t <= 0) {
+            return 0;
+        }
+        return count(i, _start[i], steps(i, t - 1) + 1);
+    }
+
+    /** Return the keystroke, counting from 0, at which the rotor in slot
+     *  I is at a notch for the K-th time, K >= 1. */
+    private long carryTime(int i, long k) {
+        int s = _start[i];
+        long j = offset(i, s, k, true);
+        if (i == _last || j == 0) {
+            return j;
+        }
+        long carry = j - count(i, s, j);
+        long skip = _notch[i][s] && carries(i + 1, 1) > 0 ? 1 : 0;
+        return carryTime(i + 1, carry + skip) + 1;
+    }
+
+    /** Return the number of notches of the rotor in slot I among the
+     *  LEN consecutive positions starting at FROM. */
+    private long count(int i, long from, long len) {
+        int f = (int) (from % _size);
+        int r = (int) (len % _size);
+        long result = (len / _size) * _prefix[i][_size];
+        if (f + r <= _size) {
+            return result + _prefix[i][f + r] - _prefix[i][f];
+        }
+        return result + _prefix[i][_size] - _prefix[i][f]
+            + _prefix[i][f + r - _size];
+    }
+
+    /** Return the distance from position FROM to the K-th position
+     *  (K >= 1) of the rotor in slot I, reached when moving forward from
+     *  FROM and counting FROM itself, that is a notch if NOTCH and is not
+     *  a notch otherwise. */
+    private long offset(int i, int from, long k, boolean notch) {
+        int[] positions = notch ? _notchList[i] : _openList[i];
+        int below = notch ? _prefix[i][from] : from - _prefix[i][from];
+        long target = below + k - 1;
+        return (target / positions.length) * _size
+            + positions[(int) (target % positions.length)] - from;
+    }
+
+    /** Size of the rotors' alphabet. */
+    private final int _size;
+    /** Index of the rightmost slot. */
+    private final int _last;
+    /** Leftmost slot of the run of rotating rotors ending at _last; the
+     *  rotors to its left never move. */
+    private int _first;
+    /** Starting setting of each slot. */
+    private final int[] _start;
+    /** Whether each position of the rotor in each slot is a notch. */
+    private final boolean[][] _notch;
+    /** Number of notches of each slot's rotor below each position. */
+    private final int[][] _prefix;
+    /** Notch positions of each slot's rotor in increasing order. */
+    private final int[][] _notchList;
+    /** Positions of each slot's rotor that are not notches, in
+     *  increasing order. */
+    private final int[][] _openList;
+    /** Whether the rotor in each slot moves on its own notch. */
+    private final boolean[] _doubleSteps;
+    /** True iff no double-stepping rotor has adjacent notches. */
+    private boolean _exact;
+}
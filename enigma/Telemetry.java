@@ -0,0 +1,170 @@
+package enigma;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/** Java Flight Recorder events and always-on counters describing the
+ *  work done by the simulator.  Loading an event class costs far more
+ *  than a short run of the simulator, so callers create events only
+ *  when recording() is true, that is, once Flight Recorder has been
+ *  started (with -XX:StartFlightRecording or jcmd JFR.start).  The
+ *  counters are updated once per block or settings line rather than
+ *  per character.
+ *  @author Connor Bernard
+ */
+final class Telemetry {
+
+    /** Not instantiable. */
+    private Telemetry() {
+    }
+
+    /** Return true iff Flight Recorder is running, so that events may be
+     *  created.  On first finding it running, registers the periodic
+     *  Counters event. */
+    static boolean recording() {
+        if (!FlightRecorder.isInitialized()) {
+            return false;
+        }
+        if (!_countersRegistered) {
+            registerCounters();
+        }
+        return true;
+    }
+
+    /** Arrange for the Counters event to be emitted periodically. */
+    private static synchronized void registerCounters() {
+        if (!_countersRegistered) {
+            FlightRecorder.addPeriodicEvent(Counters.class, () -> {
+                Counters event = new Counters();
+                event.characters = characters();
+                event.settingsSwitches = settingsSwitches();
+                event.commit();
+            });
+            _countersRegistered = true;
+        }
+    }
+
+    /** Record that N more characters have been converted. */
+    static void addCharacters(long n) {
+        CHARACTERS.add(n);
+    }
+
+    /** Record that a machine has been set up from another settings
+     *  line. */
+    static void addSettingsSwitch() {
+        SETTINGS_SWITCHES.increment();
+    }
+
+    /** Return the number of characters converted so far. */
+    static long characters() {
+        return CHARACTERS.sum();
+    }
+
+    /** Return the number of settings lines processed so far. */
+    static long settingsSwitches() {
+        return SETTINGS_SWITCHES.sum();
+    }
+
+    /** Loading of a machine configuration. */
+    @Name("enigma.ConfigLoad")
+    @Label("Configuration Load")
+    @Category("Enigma")
+    @StackTrace(false)
+    static final class ConfigLoad extends Event {
+        /** Name of the configuration file. */
+        @Label("Configuration")
+        String config;
+        /** True iff the configuration was in compiled form. */
+        @Label("Compiled")
+        boolean compiled;
+        /** Number of symbols in the alphabet. */
+        @Label("Alphabet Size")
+        int alphabetSize;
+        /** Number of rotors available. */
+        @Label("Rotors")
+        int rotors;
+    }
+
+    /** Setting up a machine from a settings line. */
+    @Name("enigma.SetUp")
+    @Label("Settings Line")
+    @Category("Enigma")
+    @StackTrace(false)
+    static final class SetUp extends Event {
+        /** The settings line, without its leading "* ". */
+        @Label("Settings")
+        String settings;
+    }
+
+    /** Conversion of one line of a message. */
+    @Name("enigma.Message")
+    @Label("Message Line")
+    @Category("Enigma")
+    @StackTrace(false)
+    static final class Message extends Event {
+        /** Number of characters converted. */
+        @Label("Length")
+        long length;
+    }
+
+    /** Rotor movement during one bulk conversion. */
+    @Name("enigma.RotorSteps")
+    @Label("Rotor Steps")
+    @Category("Enigma")
+    @StackTrace(false)
+    static final class RotorSteps extends Event {
+        /** Number of keystrokes. */
+        @Label("Keystrokes")
+        long keystrokes;
+        /** Number of times each slot's rotor moved, leftmost first, or
+         *  empty when that cannot be computed without stepping. */
+        @Label("Steps")
+        String steps;
+        /** Total number of rotor movements, or -1 if unknown. */
+        @Label("Total Steps")
+        long total;
+    }
+
+    /** Construction of a permutation. */
+    @Name("enigma.Permutation")
+    @Label("Permutation Construction")
+    @Category("Enigma")
+    @StackTrace(false)
+    static final class PermutationBuilt extends Event {
+        /** Number of symbols permuted. */
+        @Label("Size")
+        int size;
+        /** Number of symbols that map to themselves. */
+        @Label("Fixed Points")
+        int fixedPoints;
+    }
+
+    /** Running totals of the counters. */
+    @Name("enigma.Counters")
+    @Label("Counters")
+    @Category("Enigma")
+    @Period("1 s")
+    @StackTrace(false)
+    static final class Counters extends Event {
+        /** Characters converted so far. */
+        @Label("Characters")
+        long characters;
+        /** Settings lines processed so far. */
+        @Label("Settings Switches")
+        long settingsSwitches;
+    }
+
+    /** Characters converted by every machine. */
+    private static final LongAdder CHARACTERS = new LongAdder();
+    /** Settings lines processed. */
+    private static final LongAdder SETTINGS_SWITCHES = new LongAdder();
+    /** True once Counters has been registered. */
+    private static volatile boolean _countersRegistered;
+}
@@ -10,8 +10,18 @@ public class UnitTest {
     /** Run the JUnit tests in this package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(PermutationTest.class,
+        System.exit(textui.runClasses(AlphabetTest.class,
+                                      BombeTest.class,
+                                      ByteAlphabetTest.class,
+                                      CompiledConfigTest.class,
+                                      EnigmaServerTest.class,
+                                      IocSearchTest.class,
+                                      MachineBatchTest.class,
+                                      NgramsTest.class,
+                                      PermutationTest.class,
+                                      PlugboardSearchTest.class,
                                       MovingRotorTest.class,
+                                      SettingsCacheTest.class,
                                       MachineTest.class));
     }
 